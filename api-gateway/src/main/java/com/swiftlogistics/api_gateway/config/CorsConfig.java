@@ -15,6 +15,9 @@ public class CorsConfig {
         corsConfig.addAllowedOrigin("http://localhost:5173");
         corsConfig.addAllowedMethod("*");
         corsConfig.addAllowedHeader("*");
+        // Pagination cursor returned by GET /orders
+        corsConfig.addExposedHeader("X-Next-Cursor");
+        corsConfig.addExposedHeader("Retry-After");
         corsConfig.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -1,6 +1,6 @@
 from fastapi import FastAPI, HTTPException
 from pydantic import BaseModel
-from typing import List
+from typing import List, Optional
 import uuid
 from datetime import datetime, timezone, timedelta
 import logging
@@ -18,17 +18,17 @@ app = FastAPI(
     version="1.0.0"
 )
 
-# Corrected Order data model to match the Java Order object
+# Delivery point as sent by the middleware; the remaining fields are no longer sent
 class Order(BaseModel):
     id: int
-    userId: str
     clientName: str
     packageDetails: str
     deliveryAddress: str
-    status: str
-    cmsStatus: str
-    wmsStatus: str
-    rosStatus: str
+    userId: Optional[str] = None
+    status: Optional[str] = None
+    cmsStatus: Optional[str] = None
+    wmsStatus: Optional[str] = None
+    rosStatus: Optional[str] = None
 
 # Define other data models
 class OptimizationRequest(BaseModel):
@@ -81,6 +81,31 @@ async def add_delivery_points(order: Order):
         "status": "added"
     }
 
+@app.post("/ros/optimize", response_model=OptimizationResponse)
+async def optimize_route(request: OptimizationRequest):
+    """
+    Endpoint for optimizing one route over a batch of delivery points.
+    """
+    logger.info(f"Optimizing route for vehicle {request.vehicle_id} with {len(request.orders)} order(s)")
+    await simulate_optimization_processing()
+    start = datetime.now(timezone.utc)
+    stops = [
+        OptimizedStop(
+            stop_number=i + 1,
+            order_id=str(order.id),
+            address=order.deliveryAddress,
+            estimated_arrival=(start + timedelta(minutes=15 * (i + 1))).isoformat()
+        )
+        for i, order in enumerate(request.orders)
+    ]
+    return OptimizationResponse(
+        optimized_route_id=str(uuid.uuid4()),
+        vehicle_id=request.vehicle_id,
+        optimized_sequence=stops,
+        total_estimated_duration=f"{15 * len(stops)} minutes",
+        total_distance=f"{2.5 * len(stops):.1f} km"
+    )
+
 @app.get("/ros/routes/{route_id}")
 async def get_route_status(route_id: str):
     """
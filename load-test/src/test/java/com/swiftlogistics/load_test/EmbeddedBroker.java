@@ -0,0 +1,58 @@
+package com.swiftlogistics.load_test;
+
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.SystemConfig;
+
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An in-memory AMQP 0-9-1 broker (Apache Qpid Broker-J) in the test JVM, user guest/guest.
+ *
+ * Queue arguments Broker-J does not know are ignored instead of failing the declaration.
+ * The x-dead-letter arguments of the confirmation retry queues are among them, so the
+ * confirmation retry path does not loop back here. With the outbox, a confirmation cannot
+ * overtake its order's commit, so the loop does not depend on it.
+ */
+class EmbeddedBroker implements AutoCloseable {
+
+    private final SystemLauncher launcher = new SystemLauncher();
+    private final int port;
+
+    EmbeddedBroker() throws Exception {
+        this.port = freePort();
+        Path workDir = Files.createTempDirectory("qpid-load-test");
+
+        Map<String, Object> context = new HashMap<>();
+        context.put("qpid.amqp_port", port);
+        context.put("qpid.work_dir", workDir.toString());
+        context.put("queue.behaviourOnUnknownDeclareArgument", "IGNORE");
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(SystemConfig.TYPE, "Memory");
+        attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION,
+                EmbeddedBroker.class.getResource("/qpid-config.json").toExternalForm());
+        attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        attributes.put(ConfiguredObject.CONTEXT, context);
+        launcher.startup(attributes);
+    }
+
+    int port() {
+        return port;
+    }
+
+    static int freePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Override
+    public void close() {
+        launcher.shutdown();
+    }
+}
@@ -0,0 +1,117 @@
+package com.swiftlogistics.load_test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-JVM stand-ins for the CMS, WMS and ROS mocks in externals/, on one HTTP server and
+ * the same paths as the mocks. Each system answers after its configured latency (plus
+ * up to jitter) and fails with a 500 at its configured error rate. Each request gets its
+ * own thread, so a slow system does not cap the number of requests in progress. (Not
+ * virtual threads: the JDK HTTP server pins them, which stalls small machines.) ROS
+ * requests are optimization requests, so each one covers a batch of orders.
+ *
+ * Configured with -Dload.cms.latencyMs, -Dload.cms.jitterMs and -Dload.cms.errorRate, and
+ * the same for wms and ros. -Dload.wms.latencyMs=7000 reproduces the WMS mock's delay.
+ */
+class ExternalSystemStubs implements AutoCloseable {
+
+    record Behaviour(long latencyMs, long jitterMs, double errorRate) {
+
+        static Behaviour fromSystemProperties(String system, long defaultLatencyMs) {
+            return new Behaviour(
+                    Long.getLong("load." + system + ".latencyMs", defaultLatencyMs),
+                    Long.getLong("load." + system + ".jitterMs", defaultLatencyMs / 5),
+                    Double.parseDouble(System.getProperty("load." + system + ".errorRate", "0")));
+        }
+    }
+
+    static final class Stub {
+        final String name;
+        final Behaviour behaviour;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+
+        Stub(String name, Behaviour behaviour) {
+            this.name = name;
+            this.behaviour = behaviour;
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + behaviour + ": " + requests.get() + " request(s), " + errors.get() + " error(s)";
+        }
+    }
+
+    final Stub cms = new Stub("CMS", Behaviour.fromSystemProperties("cms", 20));
+    final Stub wms = new Stub("WMS", Behaviour.fromSystemProperties("wms", 50));
+    final Stub ros = new Stub("ROS", Behaviour.fromSystemProperties("ros", 30));
+
+    private final HttpServer server;
+
+    ExternalSystemStubs() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/orders", exchange -> handle(exchange, cms, "<response><status>ACCEPTED</status></response>"));
+        server.createContext("/packages/", exchange -> handle(exchange, wms, "{\"status\": \"received\"}"));
+        server.createContext("/ros/delivery-points", exchange -> handle(exchange, ros, "{\"message\": \"Delivery point added successfully\"}"));
+        server.createContext("/ros/optimize", exchange -> handle(exchange, ros, "{\"optimized_route_id\": \"stub\"}"));
+        server.start();
+    }
+
+    String cmsEndpoint() {
+        return baseUrl() + "/api/orders";
+    }
+
+    String wmsEndpoint() {
+        return baseUrl() + "/packages/{package_id}/receive";
+    }
+
+    String rosEndpoint() {
+        return baseUrl() + "/ros/optimize";
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private static void handle(HttpExchange exchange, Stub stub, String body) throws IOException {
+        stub.requests.incrementAndGet();
+        try (InputStream request = exchange.getRequestBody()) {
+            request.transferTo(OutputStream.nullOutputStream());
+        }
+        Behaviour behaviour = stub.behaviour;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = behaviour.latencyMs() + (behaviour.jitterMs() > 0 ? random.nextLong(behaviour.jitterMs() + 1) : 0);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        boolean fail = random.nextDouble() < behaviour.errorRate();
+        byte[] response = (fail ? "{\"error\": \"injected failure\"}" : body).getBytes(StandardCharsets.UTF_8);
+        if (fail) {
+            stub.errors.incrementAndGet();
+        }
+        exchange.getResponseHeaders().set("Content-Type", body.startsWith("<") && !fail ? "application/xml" : "application/json");
+        exchange.sendResponseHeaders(fail ? 500 : 200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,294 @@
+package com.swiftlogistics.load_test;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.swiftlogistics.logistics_middleware.LogisticsMiddlewareApplication;
+import com.swiftlogistics.order_orchestration_service.OrderOrchestrationServiceApplication;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives POST /orders at a fixed rate through the whole saga (orchestration, broker,
+ * middleware, CMS/WMS/ROS and the confirmations back) and reports sustained throughput,
+ * saga latency per stage and queue depths. Everything runs in this JVM: an embedded
+ * PostgreSQL for the orchestration service, H2 for the middleware, an embedded AMQP broker
+ * and {@link ExternalSystemStubs} for the external systems.
+ *
+ * Run from this module after installing both services (mvn install -DskipTests in each):
+ *
+ *   mvn test -Dload.ordersPerSecond=200 -Dload.durationSeconds=120 -Dload.wms.latencyMs=7000
+ *
+ * -Dload.orchestration.* and -Dload.middleware.* set properties of the two services, for
+ * example -Dload.orchestration.spring.threads.virtual.enabled=true. Needs JDK 21, like the
+ * services, and a non-root user, because PostgreSQL refuses to start as root.
+ */
+class SagaLoadTest {
+
+    private static final int ORDERS_PER_SECOND = Integer.getInteger("load.ordersPerSecond", 100);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.durationSeconds", 60);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmupSeconds", 10);
+    private static final int DRAIN_SECONDS = Integer.getInteger("load.drainSeconds", 60);
+    private static final int USERS = Integer.getInteger("load.users", 50);
+    private static final int REPORT_INTERVAL_SECONDS = Integer.getInteger("load.reportIntervalSeconds", 5);
+
+    private static final String JWT_SECRET = "load-test-secret-load-test-secret-load-test";
+    private static final List<String> QUEUES = List.of(
+            "cms.queue", "wms.queue", "ros.queue", "cms-confirmation", "wms-confirmation", "ros-confirmation");
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final Map<String, Long> maxQueueDepth = new LinkedHashMap<>();
+
+    @Test
+    void sustainedOrderRate() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+             EmbeddedBroker broker = new EmbeddedBroker();
+             ExternalSystemStubs stubs = new ExternalSystemStubs();
+             // The middleware declares the order queues and bindings, so it starts first.
+             ConfigurableApplicationContext middleware = startMiddleware(broker, stubs);
+             ConfigurableApplicationContext orchestration = startOrchestration(postgres, broker)) {
+
+            MeterRegistry meters = orchestration.getBean(MeterRegistry.class);
+            Timer completed = meters.get("saga.stage.latency").tag("stage", "completed").timer();
+            Counter compensated = meters.get("saga.compensations").counter();
+            AmqpAdmin amqpAdmin = middleware.getBean(AmqpAdmin.class);
+            URI ordersUri = URI.create("http://127.0.0.1:"
+                    + orchestration.getEnvironment().getProperty("local.server.port") + "/orders");
+
+            System.out.println("Load test: " + ORDERS_PER_SECOND + " order(s)/s for " + DURATION_SECONDS
+                    + "s after " + WARMUP_SECONDS + "s warm-up, " + USERS + " user(s)");
+            System.out.println("Stubs: " + stubs.cms.behaviour + ", " + stubs.wms.behaviour + ", " + stubs.ros.behaviour);
+
+            long placementSeconds = WARMUP_SECONDS + DURATION_SECONDS;
+            long start = System.nanoTime();
+            long placementEnd = start + TimeUnit.SECONDS.toNanos(placementSeconds);
+            ScheduledExecutorService driver = startDriver(ordersUri, start, placementEnd);
+
+            long steadyStart = start + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+            // Completion counts at the first samples after warm-up and after placement stopped.
+            long steadySampledAt = 0;
+            long completedAtSteadyStart = -1;
+            long endSampledAt = 0;
+            long completedAtPlacementEnd = -1;
+            long previousCompleted = 0;
+            long drainDeadline = placementEnd + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+            try {
+                while (true) {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(REPORT_INTERVAL_SECONDS));
+                    long now = System.nanoTime();
+                    long done = completed.count();
+                    long failed = (long) compensated.count();
+                    if (completedAtSteadyStart < 0 && now >= steadyStart) {
+                        steadySampledAt = now;
+                        completedAtSteadyStart = done;
+                    }
+                    if (completedAtPlacementEnd < 0 && now >= placementEnd) {
+                        endSampledAt = now;
+                        completedAtPlacementEnd = done;
+                    }
+                    System.out.printf("t=%3ds accepted=%d completed=%d (%.1f/s) failed=%d throttled=%d shed=%d errors=%d queues %s%n",
+                            TimeUnit.NANOSECONDS.toSeconds(now - start), accepted.get(), done,
+                            (done - previousCompleted) / (double) REPORT_INTERVAL_SECONDS, failed,
+                            throttled.get(), shed.get(), errors.get(), sampleQueues(amqpAdmin));
+                    previousCompleted = done;
+                    if (now >= placementEnd && (done + failed >= accepted.get() || now >= drainDeadline)) {
+                        break;
+                    }
+                }
+            } finally {
+                driver.shutdownNow();
+            }
+
+            // Completions per second while placement ran at the target rate, after warm-up.
+            double steadySeconds = Math.max(1, TimeUnit.NANOSECONDS.toMillis(endSampledAt - steadySampledAt)) / 1000.0;
+            double sustained = (completedAtPlacementEnd - completedAtSteadyStart) / steadySeconds;
+
+            System.out.println("---- Saga load test results ----");
+            System.out.printf("Target rate: %d/s, sustained saga completions: %.1f/s%n", ORDERS_PER_SECOND, sustained);
+            System.out.printf("Accepted %d, completed %d, failed %d, still in flight %d%n", accepted.get(),
+                    completed.count(), (long) compensated.count(),
+                    accepted.get() - completed.count() - (long) compensated.count());
+            System.out.printf("Rejected: %d throttled (429), %d shed (503), %d error(s)%n",
+                    throttled.get(), shed.get(), errors.get());
+            for (String stage : List.of("cms", "wms", "ros", "completed")) {
+                System.out.println("Saga " + stage + ": " + percentiles(meters.get("saga.stage.latency").tag("stage", stage).timer()));
+            }
+            System.out.println("Max queue depths: " + maxQueueDepth);
+            System.out.println("Stubs: " + stubs.cms + "; " + stubs.wms + "; " + stubs.ros);
+
+            assertTrue(completed.count() > 0, "No saga completed");
+        }
+    }
+
+    private ConfigurableApplicationContext startMiddleware(EmbeddedBroker broker, ExternalSystemStubs stubs) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.application.name", "logistics-middleware");
+        properties.put("rabbitmq.exchange.name", "middleware.orders");
+        properties.put("rabbitmq.routing.json.key", "order.created");
+        properties.put("spring.rabbitmq.port", broker.port());
+        properties.put("spring.datasource.url", "jdbc:h2:mem:middleware");
+        properties.put("server.port", 0);
+        properties.put("cms.endpoint", stubs.cmsEndpoint());
+        properties.put("wms.endpoint", stubs.wmsEndpoint());
+        properties.put("ros.endpoint", stubs.rosEndpoint());
+        return start(LogisticsMiddlewareApplication.class, properties, "load.middleware.");
+    }
+
+    private ConfigurableApplicationContext startOrchestration(EmbeddedPostgres postgres, EmbeddedBroker broker) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.application.name", "order-orchestration-service");
+        properties.put("spring.datasource.url", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("spring.datasource.username", "postgres");
+        properties.put("spring.datasource.password", "postgres");
+        properties.put("spring.jpa.hibernate.ddl-auto", "update");
+        properties.put("spring.jpa.properties.hibernate.jdbc.batch_size", 50);
+        properties.put("spring.jpa.properties.hibernate.order_inserts", true);
+        properties.put("spring.jpa.properties.hibernate.order_updates", true);
+        properties.put("spring.rabbitmq.port", broker.port());
+        properties.put("spring.rabbitmq.publisher-confirm-type", "correlated");
+        properties.put("spring.rabbitmq.publisher-returns", true);
+        properties.put("spring.rabbitmq.template.mandatory", true);
+        properties.put("server.port", 0);
+        properties.put("jwt.secret", JWT_SECRET);
+        // The harness measures the saga, not the per-user limit; override to test admission control.
+        properties.put("orders.admission.user.rate-per-second", 1_000_000);
+        properties.put("orders.admission.user.burst", 1_000_000);
+        properties.put("saga.metrics.in-flight-refresh-ms", 1000);
+        // Client-side percentiles over the whole run, for the report.
+        properties.put("management.metrics.distribution.percentiles.saga.stage.latency", "0.5,0.99");
+        properties.put("management.metrics.distribution.expiry.saga.stage.latency", "1h");
+        properties.put("management.metrics.distribution.buffer-length.saga.stage.latency", 1);
+        return start(OrderOrchestrationServiceApplication.class, properties, "load.orchestration.");
+    }
+
+    // The services' own application.properties point at localhost infrastructure and share
+    // the classpath here, so neither is loaded; each context gets exactly these properties.
+    private static ConfigurableApplicationContext start(Class<?> application, Map<String, Object> properties,
+                                                        String overridePrefix) {
+        properties.put("spring.config.name", "load-test-" + application.getSimpleName());
+        properties.put("spring.rabbitmq.host", "127.0.0.1");
+        properties.put("spring.rabbitmq.username", "guest");
+        properties.put("spring.rabbitmq.password", "guest");
+        properties.put("eureka.client.enabled", false);
+        System.getProperties().stringPropertyNames().stream()
+                .filter(name -> name.startsWith(overridePrefix))
+                .forEach(name -> properties.put(name.substring(overridePrefix.length()), System.getProperty(name)));
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(application).run(args);
+    }
+
+    // Sends orders at ORDERS_PER_SECOND until placementEnd without waiting for responses,
+    // so a slow service shows up as latency and backlog rather than as a lower offered rate.
+    private ScheduledExecutorService startDriver(URI ordersUri, long start, long placementEnd) throws JOSEException {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newCachedThreadPool())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        String[] tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            tokens[i] = token("load-user-" + i + "@swiftlogistics.test");
+        }
+
+        AtomicLong sent = new AtomicLong();
+        ScheduledExecutorService driver = Executors.newSingleThreadScheduledExecutor();
+        driver.scheduleAtFixedRate(() -> {
+            long now = Math.min(System.nanoTime(), placementEnd);
+            long due = (now - start) * ORDERS_PER_SECOND / TimeUnit.SECONDS.toNanos(1);
+            while (sent.get() < due) {
+                long n = sent.getAndIncrement();
+                client.sendAsync(orderRequest(ordersUri, tokens[(int) (n % USERS)], n), HttpResponse.BodyHandlers.discarding())
+                        .whenComplete(this::record);
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+        return driver;
+    }
+
+    private static HttpRequest orderRequest(URI ordersUri, String token, long n) {
+        String body = "{\"clientName\":\"Load Test " + n % 1000 + "\",\"packageDetails\":\"Parcel " + n
+                + "\",\"deliveryAddress\":\"" + n % 500 + " Load Street, Colombo\"}";
+        return HttpRequest.newBuilder(ordersUri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private void record(HttpResponse<Void> response, Throwable failure) {
+        if (failure != null) {
+            errors.incrementAndGet();
+            return;
+        }
+        switch (response.statusCode()) {
+            case 200 -> accepted.incrementAndGet();
+            case 429 -> throttled.incrementAndGet();
+            case 503 -> shed.incrementAndGet();
+            default -> errors.incrementAndGet();
+        }
+    }
+
+    private static String token(String subject) throws JOSEException {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .subject(subject)
+                .issueTime(new Date())
+                .expirationTime(Date.from(Instant.now().plus(Duration.ofDays(1))))
+                .build();
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims);
+        jwt.sign(new MACSigner(JWT_SECRET.getBytes(StandardCharsets.UTF_8)));
+        return jwt.serialize();
+    }
+
+    private Map<String, Long> sampleQueues(AmqpAdmin amqpAdmin) {
+        Map<String, Long> depths = new LinkedHashMap<>();
+        for (String queue : QUEUES) {
+            QueueInformation info = amqpAdmin.getQueueInfo(queue);
+            long depth = info == null ? 0 : info.getMessageCount();
+            depths.put(queue, depth);
+            maxQueueDepth.merge(queue, depth, Math::max);
+        }
+        return depths;
+    }
+
+    private static String percentiles(Timer timer) {
+        StringBuilder summary = new StringBuilder().append(timer.count()).append(" sample(s)");
+        for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+            summary.append(String.format(", p%.0f=%.0fms", percentile.percentile() * 100,
+                    percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        return summary.append(String.format(", max=%.0fms", timer.max(TimeUnit.MILLISECONDS))).toString();
+    }
+}
@@ -1,61 +1,91 @@
 package com.swiftlogistics.logistics_middleware.adapter.cms;
 
 import com.swiftlogistics.logistics_middleware.config.RabbitMQConfig;
-import com.swiftlogistics.logistics_middleware.model.Order;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
 
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.Marshaller;
+import jakarta.xml.bind.JAXBException;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.StringWriter;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 
 @Component
 public class CmsAdapter {
     private static final Logger log = LoggerFactory.getLogger(CmsAdapter.class);
+    private static final MediaType XML_UTF_8 = new MediaType(MediaType.APPLICATION_XML, StandardCharsets.UTF_8);
 
-    private static final String CMS_ENDPOINT = "http://mock-cms-host.com:8080/api/orders";
+    @Value("${cms.endpoint:http://mock-cms-host.com:8080/api/orders}")
+    private String cmsEndpoint;
 
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_CMS)
-    public void receiveOrderFromQueue(Order order) {
+    @Autowired
+    private CmsXmlMarshaller xmlMarshaller;
+
+    @Autowired
+    @Qualifier("cmsRestTemplate")
+    private RestTemplate cmsRestTemplate;
+
+    @Autowired
+    @Qualifier("cmsCircuitBreaker")
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    @Qualifier("cmsBulkhead")
+    private Bulkhead bulkhead;
+
+    @RabbitListener(id = RabbitMQConfig.CMS_LISTENER_ID, queues = RabbitMQConfig.QUEUE_CMS)
+    public void receiveOrderFromQueue(CmsOrder order) {
         log.info("CMS Adapter received a new order from RabbitMQ: {}", order);
         try {
-            JAXBContext context = JAXBContext.newInstance(Order.class);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-            StringWriter xmlWriter = new StringWriter();
-            marshaller.marshal(order, xmlWriter);
-            String xmlData = xmlWriter.toString();
-            log.info("Converted Order to XML:\n{}", xmlData);
-
-            URL url = new URL(CMS_ENDPOINT);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/xml");
-            connection.setDoOutput(true);
-
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(xmlData.getBytes());
-                os.flush();
-            }
-
-            int responseCode = connection.getResponseCode();
+            int responseCode = bulkhead.executeCallable(() -> circuitBreaker.executeCallable(() -> sendToCms(order)));
             log.info("CMS responded with HTTP status: {}", responseCode);
 
             rabbitTemplate.convertAndSend(RabbitMQConfig.QUEUE_CMS_CONFIRMATION, order.getId());
             log.info("Sent confirmation for order ID {} to cms-confirmation queue.", order.getId());
 
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            // The CMS was not called; the order goes back to the queue, whose consumer is
+            // paused while the circuit is open.
+            log.warn("Returning order ID {} to the queue: {}", order.getId(), e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Failed to send Order to CMS. Error: {}", e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    private int sendToCms(CmsOrder order) {
+        return cmsRestTemplate.execute(cmsEndpoint, HttpMethod.POST, request -> {
+            request.getHeaders().setContentType(XML_UTF_8);
+            // Stream the XML into the request body instead of buffering it.
+            if (request instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(body -> writeXml(order, body));
+            } else {
+                writeXml(order, request.getBody());
+            }
+        }, response -> response.getStatusCode().value());
+    }
+
+    private void writeXml(CmsOrder order, OutputStream body) throws IOException {
+        try {
+            xmlMarshaller.marshal(order, body);
+        } catch (JAXBException e) {
+            throw new IOException("Could not marshal order " + order.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.swiftlogistics.logistics_middleware.adapter.cms;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * The order as submitted to the CMS. Read from the order command as JSON and written
+ * to the CMS as XML; immutable once built.
+ */
+@XmlRootElement(name = "order")
+@XmlAccessorType(XmlAccessType.FIELD)
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CmsOrder {
+
+    private Long id;
+    private String trackingNumber;
+    private String clientName;
+    private String packageDetails;
+    private String deliveryAddress;
+
+    // Required by JAXB.
+    private CmsOrder() {
+    }
+
+    @JsonCreator
+    public CmsOrder(@JsonProperty("id") Long id,
+                    @JsonProperty("trackingNumber") String trackingNumber,
+                    @JsonProperty("clientName") String clientName,
+                    @JsonProperty("packageDetails") String packageDetails,
+                    @JsonProperty("deliveryAddress") String deliveryAddress) {
+        this.id = id;
+        this.trackingNumber = trackingNumber;
+        this.clientName = clientName;
+        this.packageDetails = packageDetails;
+        this.deliveryAddress = deliveryAddress;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTrackingNumber() {
+        return trackingNumber;
+    }
+
+    public String getClientName() {
+        return clientName;
+    }
+
+    public String getPackageDetails() {
+        return packageDetails;
+    }
+
+    public String getDeliveryAddress() {
+        return deliveryAddress;
+    }
+
+    @Override
+    public String toString() {
+        return "CmsOrder{id=" + id + ", trackingNumber=" + trackingNumber + ", clientName=" + clientName + "}";
+    }
+}
@@ -0,0 +1,41 @@
+package com.swiftlogistics.logistics_middleware.adapter.cms;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import org.springframework.stereotype.Component;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Writes CmsOrders as compact UTF-8 XML. The JAXBContext is thread-safe and expensive to
+ * build, so there is one for the application. Marshallers are cheap but not thread-safe;
+ * each call borrows one from a pool and returns it, so the pool grows to the number of
+ * listener threads marshalling at the same time and no further.
+ */
+@Component
+public class CmsXmlMarshaller {
+
+    private final JAXBContext context;
+    private final Queue<Marshaller> pool = new ConcurrentLinkedQueue<>();
+
+    public CmsXmlMarshaller() throws JAXBException {
+        this.context = JAXBContext.newInstance(CmsOrder.class);
+    }
+
+    public void marshal(CmsOrder order, OutputStream out) throws JAXBException {
+        Marshaller marshaller = pool.poll();
+        if (marshaller == null) {
+            marshaller = context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, StandardCharsets.UTF_8.name());
+        }
+        try {
+            marshaller.marshal(order, out);
+        } finally {
+            pool.offer(marshaller);
+        }
+    }
+}
@@ -1,16 +1,38 @@
 package com.swiftlogistics.logistics_middleware.adapter.ros;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.swiftlogistics.logistics_middleware.config.RabbitMQConfig;
-import com.swiftlogistics.logistics_middleware.model.Order;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends orders to the ROS in micro-batches: each batch from the rosBatchContainerFactory
+ * becomes one optimization request, and every order in it is confirmed on ros-confirmation
+ * once the ROS has accepted the request.
+ *
+ * One bad order must not cost the rest of its batch. Orders missing a field the ROS
+ * requires are left out of the request, and a request the ROS rejects with a 4xx is split
+ * in halves until the rejected orders are on their own. An order that is left out or
+ * rejected is not confirmed; the saga sweeper retries it and eventually compensates it.
+ */
 @Component
 public class RosAdapter {
     private static final Logger log = LoggerFactory.getLogger(RosAdapter.class);
@@ -20,28 +42,96 @@ public class RosAdapter {
     private RabbitTemplate rabbitTemplate;
 
     @Autowired
-    public RosAdapter(RestTemplate restTemplate){
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("rosCircuitBreaker")
+    private CircuitBreaker circuitBreaker;
+
+    @Autowired
+    @Qualifier("rosBulkhead")
+    private Bulkhead bulkhead;
+
+    @Autowired
+    public RosAdapter(@Qualifier("rosRestTemplate") RestTemplate restTemplate){
         this.restTemplate = restTemplate;
     }
 
-    private static final String ROS_ENDPOINT = "http://mock-ros-host.com:8000/ros/delivery-points";
+    @Value("${ros.endpoint:http://mock-ros-host.com:8000/ros/optimize}")
+    private String rosEndpoint;
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_ROS)
-    public void receiveOrderFromQueue(Order order){
-        log.info("Ros Adapter received a new order from RabbitMQ: {}", order);
+    @Value("${ros.vehicle-id:VEHICLE-001}")
+    private String vehicleId;
 
-        try{
-            log.info("Sending order to ROS at: {}", ROS_ENDPOINT);
+    @RabbitListener(id = RabbitMQConfig.ROS_LISTENER_ID, queues = RabbitMQConfig.QUEUE_ROS, containerFactory = RabbitMQConfig.ROS_BATCH_CONTAINER_FACTORY)
+    public void receiveOrdersFromQueue(List<Message> messages){
+        List<RosDeliveryPoint> deliveryPoints = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            // A message that cannot be read or is incomplete is dropped on its own; it never
+            // fails the batch.
+            try {
+                RosDeliveryPoint deliveryPoint = objectMapper.readValue(message.getBody(), RosDeliveryPoint.class);
+                if (isComplete(deliveryPoint)) {
+                    deliveryPoints.add(deliveryPoint);
+                } else {
+                    log.error("Dropping ROS order ID {}: it lacks a client name, package details or delivery address",
+                            deliveryPoint.id());
+                }
+            } catch (IOException e) {
+                log.error("Dropping unreadable ROS order message: {}", e.getMessage());
+            }
+        }
+        if (deliveryPoints.isEmpty()) {
+            return;
+        }
+        log.info("Ros Adapter received {} order(s) from RabbitMQ", deliveryPoints.size());
 
-            ResponseEntity<String> response = restTemplate.postForEntity(ROS_ENDPOINT, order, String.class);
+        try{
+            optimize(deliveryPoints);
+        }catch (CallNotPermittedException | BulkheadFullException e){
+            // The ROS was not called; the batch goes back to the queue, whose consumer is
+            // paused while the circuit is open.
+            log.warn("Returning {} order(s) to the queue: {}", deliveryPoints.size(), e.getMessage());
+            throw e;
+        }catch (Exception e){
+            log.error("Failed to send {} order(s) to ROS, ERROR: {}", deliveryPoints.size(), e.getMessage());
+        }
+    }
 
-            log.info("Order successfully sent to ROS. Response: {}", response.getBody());
+    // Sends one optimization request and confirms its orders. A 4xx means the ROS refused
+    // something in the request, so each half is sent on its own; a single refused order is
+    // dropped. The circuit breaker ignores 4xx responses, so splitting never opens it.
+    private void optimize(List<RosDeliveryPoint> deliveryPoints) throws Exception {
+        log.info("Sending optimization request for {} order(s) to ROS at: {}", deliveryPoints.size(), rosEndpoint);
+        RosOptimizationRequest request = new RosOptimizationRequest(vehicleId, deliveryPoints);
+        ResponseEntity<String> response;
+        try {
+            response = bulkhead.executeCallable(() -> circuitBreaker.executeCallable(
+                    () -> restTemplate.postForEntity(rosEndpoint, request, String.class)));
+        } catch (HttpClientErrorException e) {
+            if (deliveryPoints.size() == 1) {
+                log.error("ROS rejected order ID {}, dropping it: {}", deliveryPoints.get(0).id(), e.getStatusCode());
+                return;
+            }
+            log.warn("ROS rejected a request for {} order(s) ({}); sending it in halves",
+                    deliveryPoints.size(), e.getStatusCode());
+            int half = deliveryPoints.size() / 2;
+            optimize(deliveryPoints.subList(0, half));
+            optimize(deliveryPoints.subList(half, deliveryPoints.size()));
+            return;
+        }
 
-            rabbitTemplate.convertAndSend(RabbitMQConfig.QUEUE_ROS_CONFIRMATION, order.getId());
-            log.info("Sent confirmation for order ID {} to ros-confirmation queue.", order.getId());
+        log.info("Optimization request accepted by ROS. Response: {}", response.getBody());
 
-        }catch (Exception e){
-            log.error("Failed to send order to ROS, ERROR: {}", e.getMessage());
+        for (RosDeliveryPoint deliveryPoint : deliveryPoints) {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.QUEUE_ROS_CONFIRMATION, deliveryPoint.id());
         }
+        log.info("Sent confirmations for {} order(s) to ros-confirmation queue.", deliveryPoints.size());
+    }
+
+    // The fields the ROS requires; it answers 422 for the whole request if one is missing.
+    private static boolean isComplete(RosDeliveryPoint deliveryPoint) {
+        return deliveryPoint.id() != null && deliveryPoint.clientName() != null
+                && deliveryPoint.packageDetails() != null && deliveryPoint.deliveryAddress() != null;
     }
-}
\ No newline at end of file
+}
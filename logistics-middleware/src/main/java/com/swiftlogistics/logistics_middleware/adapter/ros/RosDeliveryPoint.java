@@ -0,0 +1,10 @@
+package com.swiftlogistics.logistics_middleware.adapter.ros;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * A delivery point as the ROS expects it.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record RosDeliveryPoint(Long id, String clientName, String packageDetails, String deliveryAddress) {
+}
@@ -0,0 +1,11 @@
+package com.swiftlogistics.logistics_middleware.adapter.ros;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One route optimization call to the ROS: a batch of delivery points for a vehicle.
+ */
+public record RosOptimizationRequest(@JsonProperty("vehicle_id") String vehicleId, List<RosDeliveryPoint> orders) {
+}
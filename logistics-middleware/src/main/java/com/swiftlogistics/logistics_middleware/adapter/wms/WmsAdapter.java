@@ -1,44 +1,216 @@
 package com.swiftlogistics.logistics_middleware.adapter.wms;
 
+import com.rabbitmq.client.Channel;
 import com.swiftlogistics.logistics_middleware.config.RabbitMQConfig;
-import com.swiftlogistics.logistics_middleware.model.Order;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.exception.AcquirePermissionCancelledException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands packages to the WMS without holding a listener thread for the seconds a WMS call
+ * takes. Calls go out on the async wmsHttpClient and each message is acked only when its
+ * call has completed and the confirmation is sent, so a crash mid-call leaves the message
+ * unacked and the broker redelivers it. A failed call is resent once through the WMS retry
+ * route, counted in the x-wms-attempts header, then dropped. Messages the bulkhead or the
+ * circuit turned away never reached the WMS and go back to the queue without counting.
+ *
+ * At most wms.adapter.max-in-flight calls are outstanding (the wms bulkhead); past that the
+ * listener thread waits for one to finish, which stops further deliveries. Calls go through
+ * the wms circuit breaker; while it is open the consumer is paused, see ResilienceConfig.
+ * While it is half-open, messages beyond the trial calls are held unacked, which uses up
+ * the prefetch instead of a thread, and are requeued when the circuit leaves half-open.
+ */
 @Component
 public class WmsAdapter {
     private static final Logger log = LoggerFactory.getLogger(WmsAdapter.class);
 
-    private static final String WMS_ENDPOINT = "http://mock-wms-host.com:9090/packages/{package_id}/receive";
+    @Value("${wms.endpoint:http://mock-wms-host.com:9090/packages/{package_id}/receive}")
+    private String wmsEndpoint;
 
     @Autowired
     private RabbitTemplate rabbitTemplate;
 
-    @Autowired
-    private RestTemplate restTemplate;
+    // WMS calls made for a message so far; set on the copy resent after a failed call
+    static final String ATTEMPTS_HEADER = "x-wms-attempts";
+    private static final int MAX_ATTEMPTS = 2;
+
+    private final CloseableHttpAsyncClient wmsHttpClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    // Deliveries waiting for the outcome of the half-open trial calls
+    private final Queue<HeldDelivery> heldForTrial = new ConcurrentLinkedQueue<>();
+
+    private record HeldDelivery(Channel channel, long deliveryTag) {
+    }
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_WMS)
-    public void receiveOrderFromQueue(Order order){
-        log.info("WMS Adapter received a new order from RabbitMQ: {}", order);
+    public WmsAdapter(@Qualifier("wmsHttpClient") CloseableHttpAsyncClient wmsHttpClient,
+                      @Qualifier("wmsCircuitBreaker") CircuitBreaker circuitBreaker,
+                      @Qualifier("wmsBulkhead") Bulkhead bulkhead,
+                      MeterRegistry meterRegistry) {
+        this.wmsHttpClient = wmsHttpClient;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        Gauge.builder("wms.adapter.in-flight", bulkhead, b -> b.getBulkheadConfig().getMaxConcurrentCalls()
+                        - b.getMetrics().getAvailableConcurrentCalls())
+                .description("WMS calls in progress.")
+                .register(meterRegistry);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            if (event.getStateTransition().getFromState() == CircuitBreaker.State.HALF_OPEN) {
+                requeueHeld();
+            }
+        });
+    }
+
+    @RabbitListener(id = RabbitMQConfig.WMS_LISTENER_ID, queues = RabbitMQConfig.QUEUE_WMS, containerFactory = RabbitMQConfig.WMS_LISTENER_CONTAINER_FACTORY)
+    public void receiveOrderFromQueue(WmsPackage wmsPackage, Channel channel,
+                                      @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                      @Header(name = ATTEMPTS_HEADER, required = false) Integer attempts) throws IOException {
+        log.info("WMS Adapter received a new order from RabbitMQ: {}", wmsPackage);
+        try {
+            bulkhead.acquirePermission();
+        } catch (BulkheadFullException | AcquirePermissionCancelledException e) {
+            // Still full after the wait, or the container is stopping; leave the message to
+            // another consumer.
+            channel.basicNack(deliveryTag, false, true);
+            return;
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.onComplete();
+            if (circuitBreaker.getState() == CircuitBreaker.State.HALF_OPEN) {
+                holdForTrial(channel, deliveryTag);
+            } else {
+                log.warn("Returning order ID {} to the queue: circuit for WMS is {}", wmsPackage.id(), circuitBreaker.getState());
+                channel.basicNack(deliveryTag, false, true);
+            }
+            return;
+        }
 
+        int attemptsMade = attempts == null ? 1 : attempts + 1;
+        long start = System.nanoTime();
+        String url = wmsEndpoint.replace("{package_id}", wmsPackage.id().toString());
+        log.info("Attempting to send order to WMS at: {}", url);
         try {
-            String url = WMS_ENDPOINT.replace("{package_id}", order.getId().toString());
-            log.info("Attempting to send order to WMS at: {}", url);
+            wmsHttpClient.execute(SimpleRequestBuilder.post(url).build(), new FutureCallback<>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    if (response.getCode() >= 300) {
+                        finish(wmsPackage, channel, deliveryTag, attemptsMade, start,
+                                new IOException("WMS responded with HTTP status " + response.getCode()));
+                        return;
+                    }
+                    log.info("WMS mock response: {}", response.getBodyText());
+                    finish(wmsPackage, channel, deliveryTag, attemptsMade, start, null);
+                }
 
-            String response = restTemplate.postForObject(url, null, String.class);
+                @Override
+                public void failed(Exception e) {
+                    finish(wmsPackage, channel, deliveryTag, attemptsMade, start, e);
+                }
 
-            log.info("WMS mock response: {}", response);
+                @Override
+                public void cancelled() {
+                    finish(wmsPackage, channel, deliveryTag, attemptsMade, start, new CancellationException("WMS call cancelled"));
+                }
+            });
+        } catch (RuntimeException e) {
+            finish(wmsPackage, channel, deliveryTag, attemptsMade, start, e);
+        }
+    }
 
-            rabbitTemplate.convertAndSend(RabbitMQConfig.QUEUE_WMS_CONFIRMATION, order.getId());
-            log.info("Sent confirmation for order ID {} to wms-confirmation queue.", order.getId());
+    // Half-open lets only a few trial calls through. Requeuing the other messages would have
+    // the broker hand them straight back, so they stay unacked until the trial calls move the
+    // circuit on. Checked again after holding in case that happened in the meantime.
+    private void holdForTrial(Channel channel, long deliveryTag) {
+        heldForTrial.add(new HeldDelivery(channel, deliveryTag));
+        if (circuitBreaker.getState() != CircuitBreaker.State.HALF_OPEN) {
+            requeueHeld();
+        }
+    }
 
+    // Closed: the held messages are delivered again and called normally. Open: they wait in
+    // the queue while the consumer is paused.
+    private void requeueHeld() {
+        HeldDelivery held;
+        while ((held = heldForTrial.poll()) != null) {
+            try {
+                held.channel().basicNack(held.deliveryTag(), false, true);
+            } catch (Exception e) {
+                // The channel is gone; the broker requeues the unacked message itself.
+                log.warn("Could not requeue held WMS message: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Runs on an HTTP client thread once the call is over; keep it short.
+    private void finish(WmsPackage wmsPackage, Channel channel, long deliveryTag, int attemptsMade, long start,
+                        Exception error) {
+        bulkhead.onComplete();
+        if (error == null) {
+            circuitBreaker.onSuccess(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } else {
+            circuitBreaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, error);
+        }
+        try {
+            if (error == null) {
+                rabbitTemplate.convertAndSend(RabbitMQConfig.QUEUE_WMS_CONFIRMATION, wmsPackage.id());
+                log.info("Sent confirmation for order ID {} to wms-confirmation queue.", wmsPackage.id());
+                channel.basicAck(deliveryTag, false);
+            } else {
+                boolean retry = attemptsMade < MAX_ATTEMPTS;
+                log.error("Failed to connect or send message to WMS for order ID {}{}, ERROR: {}", wmsPackage.id(),
+                        retry ? " (will retry once)" : "", error.getMessage());
+                if (retry) {
+                    resend(wmsPackage, attemptsMade);
+                }
+                channel.basicAck(deliveryTag, false);
+            }
+        } catch (AmqpException e) {
+            // The confirmation or the retry could not be sent; requeue the original so it is
+            // handled again. A failed call is not counted, the header is only on the retry.
+            log.warn("Could not send WMS follow-up for order ID {}: {}", wmsPackage.id(), e.getMessage());
+            try {
+                channel.basicNack(deliveryTag, false, true);
+            } catch (Exception nackFailure) {
+                log.warn("Could not settle WMS message for order ID {}: {}", wmsPackage.id(), nackFailure.getMessage());
+            }
         } catch (Exception e) {
-            log.error("Failed to connect or send message to WMS, ERROR: {}", e.getMessage());
+            // The channel is gone; the broker redelivers the unacked message.
+            log.warn("Could not settle WMS message for order ID {}: {}", wmsPackage.id(), e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // The broker's redelivered flag also covers messages the circuit turned away, so the
+    // count of real calls travels with the message instead.
+    private void resend(WmsPackage wmsPackage, int attemptsMade) {
+        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_ORDERS, RabbitMQConfig.ROUTING_KEY_RETRY_WMS, wmsPackage,
+                message -> {
+                    message.getMessageProperties().setHeader(ATTEMPTS_HEADER, attemptsMade);
+                    return message;
+                });
+    }
+}
@@ -0,0 +1,10 @@
+package com.swiftlogistics.logistics_middleware.adapter.wms;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * The part of an order command the WMS needs: the package is received by order id only.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record WmsPackage(Long id) {
+}
@@ -0,0 +1,125 @@
+package com.swiftlogistics.logistics_middleware.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * One pooled keep-alive HTTP client per external system, so connections are reused across
+ * orders and a slow system cannot take connections from the others. Configured with
+ * http.client.<cms|wms|ros>.*; pool usage is exported as httpcomponents.httpclient.pool.*
+ * tagged httpclient=cms|wms|ros.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Bean
+    public CloseableHttpClient cmsHttpClient() {
+        return pooledClient("cms");
+    }
+
+    // WMS calls take seconds, so WMS gets a non-blocking client; see WmsAdapter. Every call
+    // in flight holds a connection, so by default the pool is as large as the in-flight limit.
+    @Bean
+    public CloseableHttpAsyncClient wmsHttpClient(@Value("${wms.adapter.max-in-flight:200}") long maxInFlight) {
+        int maxConnections = property("wms", "max-connections", maxInFlight).intValue();
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(connectionConfig("wms"))
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "wms").bindTo(meterRegistry);
+
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig("wms"))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(property("wms", "max-idle-ms", 30000L)))
+                .build();
+        client.start();
+        return client;
+    }
+
+    @Bean
+    public CloseableHttpClient rosHttpClient() {
+        return pooledClient("ros");
+    }
+
+    @Bean
+    public RestTemplate cmsRestTemplate(@Qualifier("cmsHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    @Bean
+    public RestTemplate rosRestTemplate(@Qualifier("rosHttpClient") CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private CloseableHttpClient pooledClient(String system) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections(system))
+                .setMaxConnPerRoute(maxConnections(system))
+                .setDefaultConnectionConfig(connectionConfig(system))
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, system).bindTo(meterRegistry);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig(system))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(property(system, "max-idle-ms", 30000L)))
+                .build();
+    }
+
+    // Each system is a single host, so the per-route limit is the pool size.
+    private int maxConnections(String system) {
+        return property(system, "max-connections", 50L).intValue();
+    }
+
+    private ConnectionConfig connectionConfig(String system) {
+        return ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(property(system, "connect-timeout-ms", 2000L)))
+                .setSocketTimeout(Timeout.ofMilliseconds(property(system, "read-timeout-ms", 10000L)))
+                // Re-check connections that sat idle, the server may have closed them.
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+    }
+
+    private RequestConfig requestConfig(String system) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(property(system, "acquire-timeout-ms", 5000L)))
+                .setResponseTimeout(Timeout.ofMilliseconds(property(system, "read-timeout-ms", 10000L)))
+                // Used when the server does not send a Keep-Alive header.
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(property(system, "keep-alive-ms", 30000L)))
+                .build();
+    }
+
+    private Long property(String system, String name, long defaultValue) {
+        return environment.getProperty("http.client." + system + "." + name, Long.class, defaultValue);
+    }
+}
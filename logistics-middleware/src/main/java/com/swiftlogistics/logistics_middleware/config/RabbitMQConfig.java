@@ -1,12 +1,16 @@
 package com.swiftlogistics.logistics_middleware.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.BindingBuilder;
-import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
-import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.Queue;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 
@@ -17,16 +21,28 @@ public class RabbitMQConfig {
     public static final String QUEUE_WMS = "wms.queue";
     public static final String QUEUE_ROS = "ros.queue";
 
-    public static final String EXCHANGE_MIDDLEWARE = "middleware.exchange";
+    // Orchestration publishes each new order once to this topic exchange; every adapter
+    // queue is bound to the "order.created" key, so the broker fans it out to all three.
+    public static final String EXCHANGE_ORDERS = "middleware.orders";
 
-    public static final String ROUTING_KEY_CMS = "cms.routing.key";
-    public static final String ROUTING_KEY_WMS = "wms.routing.key";
-    public static final String ROUTING_KEY_ROS = "ros.routing.key";
+    public static final String ROUTING_KEY_ORDER_CREATED = "order.created";
+    // Resends aimed at a single system
+    public static final String ROUTING_KEY_RETRY_CMS = "order.retry.cms";
+    public static final String ROUTING_KEY_RETRY_WMS = "order.retry.wms";
+    public static final String ROUTING_KEY_RETRY_ROS = "order.retry.ros";
 
     public static final String QUEUE_CMS_CONFIRMATION = "cms-confirmation";
     public static final String QUEUE_WMS_CONFIRMATION = "wms-confirmation";
     public static final String QUEUE_ROS_CONFIRMATION = "ros-confirmation";
 
+    // Listener container ids, so a container can be stopped and started; see ResilienceConfig
+    public static final String CMS_LISTENER_ID = "cmsListener";
+    public static final String WMS_LISTENER_ID = "wmsListener";
+    public static final String ROS_LISTENER_ID = "rosListener";
+
+    public static final String WMS_LISTENER_CONTAINER_FACTORY = "wmsListenerContainerFactory";
+    public static final String ROS_BATCH_CONTAINER_FACTORY = "rosBatchContainerFactory";
+
     @Bean
     public Queue cmsQueue(){
         return new Queue(QUEUE_CMS, true);
@@ -58,32 +74,56 @@ public class RabbitMQConfig {
     }
 
     @Bean
-    public DirectExchange exchange() {
-        return new DirectExchange(EXCHANGE_MIDDLEWARE);
-    }
-
-    @Bean
-    public Binding cmsBinding(Queue cmsQueue, DirectExchange exchange) {
-        return BindingBuilder.bind(cmsQueue).to(exchange).with(ROUTING_KEY_CMS);
+    public TopicExchange ordersExchange() {
+        return new TopicExchange(EXCHANGE_ORDERS);
     }
 
     @Bean
-    public Binding wmsBinding(Queue wmsQueue, DirectExchange exchange) {
-        return BindingBuilder.bind(wmsQueue).to(exchange).with(ROUTING_KEY_WMS);
+    public Declarables orderBindings(Queue cmsQueue, Queue wmsQueue, Queue rosQueue, TopicExchange ordersExchange) {
+        return new Declarables(
+                BindingBuilder.bind(cmsQueue).to(ordersExchange).with(ROUTING_KEY_ORDER_CREATED),
+                BindingBuilder.bind(wmsQueue).to(ordersExchange).with(ROUTING_KEY_ORDER_CREATED),
+                BindingBuilder.bind(rosQueue).to(ordersExchange).with(ROUTING_KEY_ORDER_CREATED),
+                BindingBuilder.bind(cmsQueue).to(ordersExchange).with(ROUTING_KEY_RETRY_CMS),
+                BindingBuilder.bind(wmsQueue).to(ordersExchange).with(ROUTING_KEY_RETRY_WMS),
+                BindingBuilder.bind(rosQueue).to(ordersExchange).with(ROUTING_KEY_RETRY_ROS));
     }
 
     @Bean
-    public Binding rosBinding(Queue rosQueue, DirectExchange exchange) {
-        return BindingBuilder.bind(rosQueue).to(exchange).with(ROUTING_KEY_ROS);
+    public MessageConverter messageConverter() {
+        return new Jackson2JsonMessageConverter();
     }
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    // WmsAdapter acks each message when its WMS call completes; the prefetch lets a consumer
+    // hold as many unacked messages as the adapter allows calls in flight.
+    @Bean(name = WMS_LISTENER_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory wmsListenerContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                            ConnectionFactory connectionFactory,
+                                                                            @Value("${wms.adapter.max-in-flight:200}") int maxInFlight) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(maxInFlight);
+        return factory;
     }
 
-    @Bean
-    public MessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    // RosAdapter receives orders in batches of up to ros.batch.size, or whatever has arrived
+    // ros.batch.timeout-ms after the batch started. The batch timeout is checked between
+    // polls, so each poll waits at most that long too. The whole batch is acked once the
+    // listener returns.
+    @Bean(name = ROS_BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory rosBatchContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                         ConnectionFactory connectionFactory,
+                                                                         @Value("${ros.batch.size:50}") int batchSize,
+                                                                         @Value("${ros.batch.timeout-ms:500}") long batchTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setBatchReceiveTimeout(batchTimeoutMs);
+        factory.setReceiveTimeout(batchTimeoutMs);
+        factory.setPrefetchCount(batchSize);
+        return factory;
     }
-}
\ No newline at end of file
+}
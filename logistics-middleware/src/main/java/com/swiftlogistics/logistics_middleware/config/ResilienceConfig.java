@@ -0,0 +1,142 @@
+package com.swiftlogistics.logistics_middleware.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.Registry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A circuit breaker and a bulkhead per external system, named cms, wms and ros and tuned
+ * with resilience4j.circuitbreaker.instances.<name>.* and resilience4j.bulkhead.instances.<name>.*.
+ *
+ * While a system's circuit is open its queue consumer is stopped, so orders wait in the
+ * queue instead of failing one after another against a system that is down. The consumer
+ * starts again when the circuit goes half-open and lets the trial calls through. States
+ * and transitions are at /actuator/circuitbreakers and /actuator/circuitbreakerevents.
+ */
+@Configuration
+public class ResilienceConfig {
+    private static final Logger log = LoggerFactory.getLogger(ResilienceConfig.class);
+
+    public static final String CMS = "cms";
+    public static final String WMS = "wms";
+    public static final String ROS = "ros";
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    // Lazy: the listener containers are created after the adapters, which need the beans below.
+    @Autowired
+    @Lazy
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    // Containers must not be stopped from their own listener threads, and a stop waits for
+    // the consumers to finish, so stops and starts run here, one at a time and in order.
+    private final ExecutorService listenerControl = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "circuit-listener-control"));
+
+    @Bean
+    public CircuitBreaker cmsCircuitBreaker() {
+        return circuitBreaker(CMS, RabbitMQConfig.CMS_LISTENER_ID);
+    }
+
+    @Bean
+    public CircuitBreaker wmsCircuitBreaker() {
+        return circuitBreaker(WMS, RabbitMQConfig.WMS_LISTENER_ID);
+    }
+
+    @Bean
+    public CircuitBreaker rosCircuitBreaker() {
+        return circuitBreaker(ROS, RabbitMQConfig.ROS_LISTENER_ID);
+    }
+
+    @Bean
+    public Bulkhead cmsBulkhead() {
+        return bulkheadRegistry.bulkhead(CMS);
+    }
+
+    // Every WMS call in flight holds an unacked message, so the WMS bulkhead is as large as
+    // the listener prefetch, and a full bulkhead makes the listener wait, as WmsAdapter expects.
+    @Bean
+    public Bulkhead wmsBulkhead(@Value("${wms.adapter.max-in-flight:200}") int maxInFlight,
+                                @Value("${wms.adapter.max-wait-ms:60000}") long maxWaitMs) {
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(WMS);
+        BulkheadConfig config = BulkheadConfig.from(bulkhead.getBulkheadConfig())
+                .maxConcurrentCalls(maxInFlight)
+                .maxWaitDuration(Duration.ofMillis(maxWaitMs))
+                .build();
+        return replace(bulkheadRegistry, WMS, Bulkhead.of(WMS, config, bulkhead.getTags()));
+    }
+
+    @Bean
+    public Bulkhead rosBulkhead() {
+        return bulkheadRegistry.bulkhead(ROS);
+    }
+
+    private CircuitBreaker circuitBreaker(String system, String listenerId) {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(system);
+        // The consumer is stopped while the circuit is open, so no call would ever move it to
+        // half-open; the circuit has to do that itself once the open wait is over.
+        if (!circuitBreaker.getCircuitBreakerConfig().isAutomaticTransitionFromOpenToHalfOpenEnabled()) {
+            CircuitBreakerConfig config = CircuitBreakerConfig.from(circuitBreaker.getCircuitBreakerConfig())
+                    .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                    .build();
+            circuitBreaker = replace(circuitBreakerRegistry, system, CircuitBreaker.of(system, config, circuitBreaker.getTags()));
+        }
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            CircuitBreaker.State state = event.getStateTransition().getToState();
+            log.warn("Circuit for {} is now {}", system, state);
+            if (state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN) {
+                listenerControl.execute(() -> setConsuming(system, listenerId, false));
+            } else if (state == CircuitBreaker.State.HALF_OPEN || state == CircuitBreaker.State.CLOSED) {
+                listenerControl.execute(() -> setConsuming(system, listenerId, true));
+            }
+        });
+        return circuitBreaker;
+    }
+
+    // Replacing the registry entry keeps the actuator endpoints and metrics on the instance in use.
+    private static <E> E replace(Registry<E, ?> registry, String name, E entry) {
+        registry.replace(name, entry);
+        return entry;
+    }
+
+    private void setConsuming(String system, String listenerId, boolean consuming) {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        if (container == null || container.isRunning() == consuming) {
+            return;
+        }
+        if (consuming) {
+            container.start();
+            log.info("Resumed consuming orders for {}", system);
+        } else {
+            container.stop();
+            log.info("Paused consuming orders for {} until its circuit half-opens", system);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        listenerControl.shutdownNow();
+    }
+}
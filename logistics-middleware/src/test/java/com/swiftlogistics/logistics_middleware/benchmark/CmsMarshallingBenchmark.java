@@ -0,0 +1,95 @@
+package com.swiftlogistics.logistics_middleware.benchmark;
+
+import com.swiftlogistics.logistics_middleware.adapter.cms.CmsOrder;
+import com.swiftlogistics.logistics_middleware.adapter.cms.CmsXmlMarshaller;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.Marshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one order into the CMS request body. The old path built a JAXBContext
+ * and a formatting Marshaller per message, marshalled into a StringWriter and copied the
+ * result with getBytes(); the current path reuses CmsXmlMarshaller's context and pooled
+ * marshallers and writes compact XML straight into the output stream.
+ *
+ * The stream stands in for the HTTP request body and only counts bytes. Runs with the GC
+ * profiler, so gc.alloc.rate.norm shows the allocation per order as well.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=...CmsMarshallingBenchmark -Dexec.classpathScope=test
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CmsMarshallingBenchmark {
+
+    private CmsXmlMarshaller xmlMarshaller;
+    private CmsOrder order;
+    private CountingOutputStream requestBody;
+
+    @Setup
+    public void setUp() throws Exception {
+        xmlMarshaller = new CmsXmlMarshaller();
+        order = new CmsOrder(237320560881696768L, "SWL-06JS1BRY40000-8", "ABC Enterprises",
+                "2 boxes, fragile", "123 Main St, Colombo");
+        requestBody = new CountingOutputStream();
+    }
+
+    @Benchmark
+    public void contextPerMessage(Blackhole blackhole) throws Exception {
+        JAXBContext context = JAXBContext.newInstance(CmsOrder.class);
+        Marshaller marshaller = context.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        StringWriter xmlWriter = new StringWriter();
+        marshaller.marshal(order, xmlWriter);
+        String xmlData = xmlWriter.toString();
+        requestBody.write(xmlData.getBytes());
+        blackhole.consume(requestBody.count);
+    }
+
+    @Benchmark
+    public void sharedContextStreamed(Blackhole blackhole) throws Exception {
+        xmlMarshaller.marshal(order, requestBody);
+        blackhole.consume(requestBody.count);
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CmsMarshallingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
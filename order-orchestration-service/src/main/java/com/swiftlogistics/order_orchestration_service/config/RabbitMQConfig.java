@@ -1,31 +1,67 @@
 package com.swiftlogistics.order_orchestration_service.config;
 
-import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RabbitMQConfig {
 
-    // Exchange name for sending orders
-    public static final String EXCHANGE_MIDDLEWARE = "middleware.exchange";
+    // Topic exchange for sending orders. A new order is published once with
+    // ROUTING_KEY_ORDER_CREATED and the broker copies it to the CMS, WMS and ROS queues,
+    // which the middleware binds to this exchange.
+    public static final String EXCHANGE_ORDERS = "middleware.orders";
 
     // Routing keys for sending orders
-    public static final String ROUTING_KEY_CMS = "cms.routing.key";
-    public static final String ROUTING_KEY_WMS = "wms.routing.key";
-    public static final String ROUTING_KEY_ROS = "ros.routing.key";
+    public static final String ROUTING_KEY_ORDER_CREATED = "order.created";
+    // Resends to a single system, used by the saga sweeper
+    public static final String ROUTING_KEY_RETRY_CMS = "order.retry.cms";
+    public static final String ROUTING_KEY_RETRY_WMS = "order.retry.wms";
+    public static final String ROUTING_KEY_RETRY_ROS = "order.retry.ros";
+
+    // The middleware's adapter queues, declared by the middleware. Only their depth is read
+    // here, to shed load when the adapters fall behind.
+    public static final String QUEUE_CMS = "cms.queue";
+    public static final String QUEUE_WMS = "wms.queue";
+    public static final String QUEUE_ROS = "ros.queue";
 
     // Queue names for receiving confirmations
     public static final String QUEUE_CMS_CONFIRMATION = "cms-confirmation";
     public static final String QUEUE_WMS_CONFIRMATION = "wms-confirmation";
     public static final String QUEUE_ROS_CONFIRMATION = "ros-confirmation";
 
+    // Queue for orders whose saga has to be rolled back
+    public static final String QUEUE_COMPENSATING_TRANSACTIONS = "compensating-transactions";
+
+    // Delay queues for confirmations that arrive before their order is visible.
+    // Messages wait here for their per-message TTL, then dead-letter back to the
+    // original confirmation queue through the default exchange.
+    public static final String QUEUE_CMS_CONFIRMATION_RETRY = QUEUE_CMS_CONFIRMATION + ".retry";
+    public static final String QUEUE_WMS_CONFIRMATION_RETRY = QUEUE_WMS_CONFIRMATION + ".retry";
+    public static final String QUEUE_ROS_CONFIRMATION_RETRY = QUEUE_ROS_CONFIRMATION + ".retry";
+
+    // Number of times a confirmation has already been through a delay queue
+    public static final String HEADER_CONFIRMATION_ATTEMPT = "x-confirmation-attempt";
+
+    // Fanout exchange for order changes. Every instance binds its own queue to it, so a
+    // change reaches the owner's GET /orders/stream whichever instance it is open on.
+    public static final String EXCHANGE_ORDER_UPDATES = "orders.updates";
+
     @Bean
-    public DirectExchange middlewareExchange() {
-        return new DirectExchange(EXCHANGE_MIDDLEWARE);
+    public TopicExchange ordersExchange() {
+        return new TopicExchange(EXCHANGE_ORDERS);
     }
 
     @Bean
@@ -43,9 +79,70 @@ public class RabbitMQConfig {
         return new Queue(QUEUE_ROS_CONFIRMATION, true);
     }
 
+    @Bean
+    public Queue cmsConfirmationRetryQueue() {
+        return retryQueue(QUEUE_CMS_CONFIRMATION_RETRY, QUEUE_CMS_CONFIRMATION);
+    }
+
+    @Bean
+    public Queue wmsConfirmationRetryQueue() {
+        return retryQueue(QUEUE_WMS_CONFIRMATION_RETRY, QUEUE_WMS_CONFIRMATION);
+    }
+
+    @Bean
+    public Queue rosConfirmationRetryQueue() {
+        return retryQueue(QUEUE_ROS_CONFIRMATION_RETRY, QUEUE_ROS_CONFIRMATION);
+    }
+
+    private static Queue retryQueue(String name, String targetQueue) {
+        return QueueBuilder.durable(name)
+                .deadLetterExchange("")
+                .deadLetterRoutingKey(targetQueue)
+                .build();
+    }
+
     @Bean
     public Queue compensatingTransactionsQueue() {
-        return new Queue("compensating-transactions", true);
+        return new Queue(QUEUE_COMPENSATING_TRANSACTIONS, true);
+    }
+
+    @Bean
+    public FanoutExchange orderUpdatesExchange() {
+        return new FanoutExchange(EXCHANGE_ORDER_UPDATES);
+    }
+
+    // This instance's copy of the order changes: exclusive and auto-delete, so it goes away
+    // with the instance's connection.
+    @Bean
+    public Queue orderUpdatesQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding orderUpdatesBinding(Queue orderUpdatesQueue, FanoutExchange orderUpdatesExchange) {
+        return BindingBuilder.bind(orderUpdatesQueue).to(orderUpdatesExchange);
+    }
+
+    // Confirmation listeners consume in batches of up to batch-size messages, or whatever
+    // has arrived batch-timeout-ms after the batch started. The batch timeout is checked
+    // between polls, so each poll waits at most that long too: a partial batch is delivered
+    // within twice the timeout however slowly messages trickle in. The whole batch is acked
+    // once the listener returns.
+    @Bean
+    public SimpleRabbitListenerContainerFactory confirmationBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${saga.confirmation.batch-size:200}") int batchSize,
+            @Value("${saga.confirmation.batch-timeout-ms:50}") long batchTimeoutMs) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setBatchReceiveTimeout(batchTimeoutMs);
+        factory.setReceiveTimeout(batchTimeoutMs);
+        factory.setPrefetchCount(batchSize);
+        return factory;
     }
 
     @Bean
@@ -0,0 +1,39 @@
+package com.swiftlogistics.order_orchestration_service.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Extra wiring for the virtual-thread mode (spring.threads.virtual.enabled=true).
+ *
+ * Spring Boot itself moves Tomcat request handling, @Scheduled tasks and the
+ * @RabbitListener containers onto virtual threads in that mode. What it does not do is
+ * bound database concurrency, which used to be implied by the size of the Tomcat
+ * thread pool, so the DataSource is wrapped in a ConcurrencyLimitedDataSource.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor jdbcConcurrencyLimiter(
+            @Value("${orders.jdbc.max-concurrency:10}") int maxConcurrency,
+            @Value("${orders.jdbc.acquire-timeout-ms:30000}") long acquireTimeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConcurrencyLimitedDataSource)) {
+                    System.out.println("Limiting JDBC concurrency of '" + beanName + "' to " + maxConcurrency + " on virtual threads.");
+                    return new ConcurrencyLimitedDataSource(dataSource, maxConcurrency, acquireTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
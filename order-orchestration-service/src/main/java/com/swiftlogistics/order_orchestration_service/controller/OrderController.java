@@ -1,38 +1,126 @@
 package com.swiftlogistics.order_orchestration_service.controller;
 
 import com.swiftlogistics.order_orchestration_service.dto.OrderDto;
+import com.swiftlogistics.order_orchestration_service.dto.OrderPage;
 import com.swiftlogistics.order_orchestration_service.dto.OrderRequest;
 import com.swiftlogistics.order_orchestration_service.dto.OrderResponse;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import com.swiftlogistics.order_orchestration_service.service.AdmissionControl;
+import com.swiftlogistics.order_orchestration_service.service.IdempotencyService;
 import com.swiftlogistics.order_orchestration_service.service.OrderProcessingService;
+import com.swiftlogistics.order_orchestration_service.service.OrderStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.security.Principal;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     @Autowired
     private OrderProcessingService orderProcessingService;
 
+    @Autowired
+    private OrderStreamService orderStreamService;
+
+    @Autowired
+    private AdmissionControl admissionControl;
+
+    @Value("${orders.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    // Clients may send an Idempotency-Key header; retries with the same key return the
+    // original response instead of placing the order again.
     @PostMapping
-    public OrderResponse placeOrder(@RequestBody OrderRequest orderRequest, Principal principal) {
+    public ResponseEntity<OrderResponse> placeOrder(@RequestBody OrderRequest orderRequest,
+                                                    @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                    Principal principal) {
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > IdempotencyService.MAX_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().build();
+        }
         // get the user's identifier from the Principal object.
         // principal.getName() typically returns the username.(here email)
         String userId = principal.getName();
-        return orderProcessingService.placeOrder(orderRequest, userId);
+        Optional<AdmissionControl.Rejection> rejection = admissionControl.admit(userId, 1);
+        if (rejection.isPresent()) {
+            return rejected(rejection.get());
+        }
+        return ResponseEntity.ok(orderProcessingService.placeOrder(orderRequest, userId, idempotencyKey));
     }
 
+    // Bulk intake for client manifests. Returns one result per manifest line, in order;
+    // invalid lines are reported as FAILED without affecting the others.
+    @PostMapping("/batch")
+    public ResponseEntity<List<OrderResponse>> placeOrders(@RequestBody List<OrderRequest> orderRequests, Principal principal) {
+        if (orderRequests.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+        String userId = principal.getName();
+        Optional<AdmissionControl.Rejection> rejection = admissionControl.admit(userId, Math.max(1, orderRequests.size()));
+        if (rejection.isPresent()) {
+            return rejected(rejection.get());
+        }
+        return ResponseEntity.ok(orderProcessingService.placeOrders(orderRequests, userId));
+    }
+
+    // 429 when the user is over their rate, 503 while placement is shed for everyone.
+    private static <T> ResponseEntity<T> rejected(AdmissionControl.Rejection rejection) {
+        return ResponseEntity.status(rejection.status())
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(rejection.retryAfterSeconds()))
+                .build();
+    }
+
+    // Returns one page of the user's orders, newest first. When more orders exist, the
+    // X-Next-Cursor header carries the value to pass as ?cursor= for the next page.
     @GetMapping
-    public ResponseEntity<List<OrderDto>> getUserOrders(Principal principal) {
+    public ResponseEntity<List<OrderDto>> getUserOrders(Principal principal,
+                                                        @RequestParam(required = false) Long cursor,
+                                                        @RequestParam(defaultValue = "50") int limit,
+                                                        @RequestParam(name = "status", required = false) List<OrderStatus> statuses) {
         if (principal == null) {
             return ResponseEntity.status(401).build();
         }
         String userId = principal.getName();
-        List<OrderDto> userOrders = orderProcessingService.getOrdersForUser(userId);
-        return ResponseEntity.ok(userOrders);
+        OrderPage page = orderProcessingService.getOrdersForUser(userId, cursor, limit, statuses);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor().toString());
+        }
+        return response.body(page.orders());
+    }
+
+    // Server-sent events: one "order" event with the full OrderDto each time one of the
+    // user's orders changes. Replaces polling GET /orders for open dashboards.
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamUserOrders(Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        SseEmitter emitter = orderStreamService.subscribe(principal.getName());
+        if (emitter == null) {
+            return ResponseEntity.status(429).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    @GetMapping("/{orderId}")
+    public ResponseEntity<OrderDto> getUserOrder(@PathVariable Long orderId, Principal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return orderProcessingService.getOrderForUser(orderId, principal.getName())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.swiftlogistics.order_orchestration_service.dto;
+
+import com.swiftlogistics.order_orchestration_service.model.Order;
+
+/**
+ * The order as published to the middleware. Only what the downstream systems use:
+ * no user id and no saga statuses, which are orchestration state.
+ */
+public record OrderCommand(Long id, String trackingNumber, String clientName, String packageDetails,
+                           String deliveryAddress) {
+
+    public static OrderCommand from(Order order) {
+        return new OrderCommand(order.getId(), order.getTrackingNumber(), order.getClientName(),
+                order.getPackageDetails(), order.getDeliveryAddress());
+    }
+}
@@ -1,7 +1,10 @@
 package com.swiftlogistics.order_orchestration_service.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import com.swiftlogistics.order_orchestration_service.model.Order;
 import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -11,9 +14,13 @@ import lombok.NoArgsConstructor;
  */
 @Data
 @NoArgsConstructor
+@AllArgsConstructor
 public class OrderDto {
 
+    // Order ids use all 64 bits, more than a JavaScript number can hold exactly.
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long id;
+    private String trackingNumber;
     private String clientName;
     private String packageDetails;
     private String deliveryAddress;
@@ -26,6 +33,7 @@ public class OrderDto {
     // A convenient constructor to map from the Order entity to this DTO
     public OrderDto(Order order) {
         this.id = order.getId();
+        this.trackingNumber = order.getTrackingNumber();
         this.clientName = order.getClientName();
         this.packageDetails = order.getPackageDetails();
         this.deliveryAddress = order.getDeliveryAddress();
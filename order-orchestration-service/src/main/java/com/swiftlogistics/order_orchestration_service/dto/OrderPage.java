@@ -0,0 +1,10 @@
+package com.swiftlogistics.order_orchestration_service.dto;
+
+import java.util.List;
+
+/**
+ * One page of a user's orders, newest first.
+ * nextCursor is the id to pass as the cursor for the following page, or null on the last page.
+ */
+public record OrderPage(List<OrderDto> orders, Long nextCursor) {
+}
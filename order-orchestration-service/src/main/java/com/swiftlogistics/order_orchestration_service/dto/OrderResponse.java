@@ -1,5 +1,7 @@
 package com.swiftlogistics.order_orchestration_service.dto;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -9,7 +11,15 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class OrderResponse {
+    // Order ids use all 64 bits, more than a JavaScript number can hold exactly.
+    @JsonSerialize(using = ToStringSerializer.class)
     private Long orderId;
+    private String trackingNumber;
     private String message;
     private OrderStatus status;
+
+    // For responses where no order was created.
+    public OrderResponse(Long orderId, String message, OrderStatus status) {
+        this(orderId, null, message, status);
+    }
 }
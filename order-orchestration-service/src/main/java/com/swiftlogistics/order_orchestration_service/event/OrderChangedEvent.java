@@ -0,0 +1,8 @@
+package com.swiftlogistics.order_orchestration_service.event;
+
+/**
+ * Published after a change to an order has been committed: placement, a confirmation
+ * from CMS/WMS/ROS, saga completion or compensation.
+ */
+public record OrderChangedEvent(Long orderId, String userId) {
+}
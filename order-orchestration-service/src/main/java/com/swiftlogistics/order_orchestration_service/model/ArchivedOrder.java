@@ -0,0 +1,44 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * A COMPLETED or FAILED order moved out of the hot orders table by the OrderArchiver.
+ * Same columns as Order; rows never change once archived.
+ */
+@Entity(name = "orders_archive")
+@Table(indexes = @Index(name = "idx_orders_archive_user_id_id", columnList = "userId, id"))
+@Data
+public class ArchivedOrder {
+
+    @Id
+    private Long id;
+
+    @Column(unique = true, length = 20)
+    private String trackingNumber;
+
+    @Column(nullable = false)
+    private String userId;
+
+    private String clientName;
+    private String packageDetails;
+    private String deliveryAddress;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private String cmsStatus;
+    private String wmsStatus;
+    private String rosStatus;
+
+    @Column(nullable = false, columnDefinition = "smallint default 0")
+    private short sagaProgress;
+
+    private Instant submittedAt;
+
+    @Column(nullable = false)
+    private Instant archivedAt;
+}
@@ -0,0 +1,39 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * An outbox message the broker kept refusing, moved out of order_outbox by the OutboxRelay
+ * after outbox.relay.max-attempts failed publishes. Same columns as OutboxMessage; kept for
+ * inspection and manual replay, never published again by the relay.
+ */
+@Entity(name = "order_outbox_dead_letter")
+@Data
+public class DeadLetteredOutboxMessage {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private String exchange;
+
+    @Column(nullable = false)
+    private String routingKey;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private Instant deadLetteredAt;
+}
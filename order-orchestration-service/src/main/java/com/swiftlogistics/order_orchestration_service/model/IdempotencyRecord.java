@@ -0,0 +1,43 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Remembers the response of a POST /orders call made with an Idempotency-Key header,
+ * so a retried request gets the original answer instead of creating a second order.
+ * The unique constraint on (user_id, idempotency_key) is what makes concurrent retries safe.
+ */
+@Entity(name = "idempotency_keys")
+@Table(
+        uniqueConstraints = @UniqueConstraint(name = "uk_idempotency_keys_user_key", columnNames = {"userId", "idempotencyKey"}),
+        indexes = @Index(name = "idx_idempotency_keys_expires_at", columnList = "expiresAt"))
+@Data
+@NoArgsConstructor
+public class IdempotencyRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "idempotency_keys_seq")
+    @SequenceGenerator(name = "idempotency_keys_seq", sequenceName = "idempotency_keys_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private String idempotencyKey;
+
+    // The response that was returned the first time
+    private Long orderId;
+    private String trackingNumber;
+    private String message;
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+}
@@ -1,16 +1,28 @@
 package com.swiftlogistics.order_orchestration_service.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
 
 @Entity(name = "orders")
+@Table(indexes = {
+        @Index(name = "idx_orders_user_id_id", columnList = "userId, id"),
+        @Index(name = "idx_orders_status_submitted_at", columnList = "Status, submittedAt")})
 @Data
-public class Order {
+public class Order implements Persistable<Long> {
 
+    // Assigned in memory by OrderIdGenerator at intake, so ids are known before the
+    // insert and inserts can be batched.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Customer-facing id derived from the order id, see OrderIdGenerator.trackingNumber.
+    @Column(unique = true, length = 20)
+    private String trackingNumber;
+
     // --- NEW FIELD ---
     // This column will store the identifier of the user who created the order.
     // Assuming the user ID is a String (e.g., from a JWT sub claim or a username).
@@ -28,4 +40,34 @@ public class Order {
     private String wmsStatus;
     private String rosStatus;
 
+    // Bitmask of SagaStep bits for the systems that have confirmed this order.
+    @Column(nullable = false, columnDefinition = "smallint default 0")
+    private short sagaProgress;
+
+    // When the order was accepted; the saga timeout is measured from here. Orders from
+    // before this column existed are backfilled at startup by SubmittedAtBackfill.
+    @Column(nullable = false)
+    private Instant submittedAt;
+
+    // How many times the SagaTimeoutSweeper has resent this order to unconfirmed systems.
+    @Column(nullable = false, columnDefinition = "smallint default 0")
+    private short sweepAttempts;
+
+    // The id is assigned before saving, so Spring Data cannot use "id == null" to tell
+    // a new order from an existing one. Without this, save() would issue a SELECT first.
+    @Transient
+    @JsonIgnore
+    private boolean newOrder = true;
+
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return newOrder;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.newOrder = false;
+    }
 }
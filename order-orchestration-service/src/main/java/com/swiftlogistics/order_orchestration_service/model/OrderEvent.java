@@ -0,0 +1,40 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One saga transition of an order. Rows are only ever inserted, in the same statement
+ * or transaction as the change to the order row, which is the snapshot derived from
+ * them. OrderSnapshotReplayer rebuilds the snapshots from this log.
+ */
+@Entity(name = "order_events")
+@Table(indexes = @Index(name = "idx_order_events_order_id", columnList = "orderId"))
+@Data
+@NoArgsConstructor
+public class OrderEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_events_seq")
+    @SequenceGenerator(name = "order_events_seq", sequenceName = "order_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OrderEventType type;
+
+    @Column(nullable = false)
+    private Instant occurredAt;
+
+    public OrderEvent(Long orderId, OrderEventType type) {
+        this.orderId = orderId;
+        this.type = type;
+        this.occurredAt = Instant.now();
+    }
+}
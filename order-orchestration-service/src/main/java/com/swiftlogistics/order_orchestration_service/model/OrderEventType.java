@@ -0,0 +1,21 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+/**
+ * The saga transitions recorded in order_events. Stored by name.
+ */
+public enum OrderEventType {
+    SUBMITTED,
+    CMS_CONFIRMED,
+    WMS_CONFIRMED,
+    ROS_CONFIRMED,
+    COMPLETED,
+    FAILED;
+
+    public static OrderEventType confirmed(SagaStep step) {
+        return switch (step) {
+            case CMS -> CMS_CONFIRMED;
+            case WMS -> WMS_CONFIRMED;
+            case ROS -> ROS_CONFIRMED;
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A message waiting to be published to the broker.
+ * Rows are written in the same transaction as the order they belong to and
+ * drained by the OutboxRelay, so publishing never happens on the request thread.
+ */
+@Entity(name = "order_outbox")
+@Data
+@NoArgsConstructor
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_outbox_seq")
+    @SequenceGenerator(name = "order_outbox_seq", sequenceName = "order_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderId;
+
+    @Column(nullable = false)
+    private String exchange;
+
+    @Column(nullable = false)
+    private String routingKey;
+
+    // The message body, already serialized to JSON.
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    // Number of publish attempts that were nacked, returned or timed out.
+    private int attempts;
+
+    // Set while a relay is publishing the row, and after a failed attempt to hold the retry
+    // back; the row is only picked up again once this has passed.
+    private Instant claimedUntil;
+
+    public OutboxMessage(Long orderId, String exchange, String routingKey, String payload) {
+        this.orderId = orderId;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+}
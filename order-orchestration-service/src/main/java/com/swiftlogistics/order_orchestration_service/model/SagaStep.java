@@ -0,0 +1,24 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+/**
+ * The downstream systems that must confirm an order before its saga completes.
+ * Each step owns one bit of Order.sagaProgress.
+ */
+public enum SagaStep {
+    CMS(1),
+    WMS(2),
+    ROS(4);
+
+    // sagaProgress value once every step has confirmed
+    public static final int ALL_CONFIRMED = CMS.bit | WMS.bit | ROS.bit;
+
+    private final int bit;
+
+    SagaStep(int bit) {
+        this.bit = bit;
+    }
+
+    public int bit() {
+        return bit;
+    }
+}
@@ -0,0 +1,26 @@
+package com.swiftlogistics.order_orchestration_service.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Lease on one partition of the saga timeout sweep. Whoever holds an unexpired lease is
+ * the only instance sweeping that partition, so sweeps spread across instances and a
+ * crashed instance's partitions are picked up once its leases run out.
+ */
+@Entity(name = "saga_sweep_leases")
+@Data
+public class SweepLease {
+
+    @Id
+    private Integer partitionId;
+
+    private String owner;
+
+    @Column(nullable = false)
+    private Instant leaseUntil;
+}
@@ -0,0 +1,75 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.swiftlogistics.order_orchestration_service.dto.OrderDto;
+import com.swiftlogistics.order_orchestration_service.model.ArchivedOrder;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ArchivedOrderRepository extends JpaRepository<ArchivedOrder, Long> {
+
+    @Query("""
+            SELECT new com.swiftlogistics.order_orchestration_service.dto.OrderDto(
+                a.id, a.trackingNumber, a.clientName, a.packageDetails, a.deliveryAddress, a.status,
+                a.cmsStatus, a.wmsStatus, a.rosStatus, a.userId)
+            FROM orders_archive a
+            WHERE a.id = :id
+            """)
+    Optional<OrderDto> findDtoById(@Param("id") Long id);
+
+    // Same keyset pages as OrderRepository, over the archive.
+    @Query("""
+            SELECT new com.swiftlogistics.order_orchestration_service.dto.OrderDto(
+                a.id, a.trackingNumber, a.clientName, a.packageDetails, a.deliveryAddress, a.status,
+                a.cmsStatus, a.wmsStatus, a.rosStatus, a.userId)
+            FROM orders_archive a
+            WHERE a.userId = :userId AND a.id < :beforeId
+            ORDER BY a.id DESC
+            """)
+    List<OrderDto> findPageByUserId(@Param("userId") String userId, @Param("beforeId") long beforeId, Limit limit);
+
+    @Query("""
+            SELECT new com.swiftlogistics.order_orchestration_service.dto.OrderDto(
+                a.id, a.trackingNumber, a.clientName, a.packageDetails, a.deliveryAddress, a.status,
+                a.cmsStatus, a.wmsStatus, a.rosStatus, a.userId)
+            FROM orders_archive a
+            WHERE a.userId = :userId AND a.id < :beforeId AND a.status IN :statuses
+            ORDER BY a.id DESC
+            """)
+    List<OrderDto> findPageByUserIdAndStatusIn(@Param("userId") String userId, @Param("beforeId") long beforeId,
+                                               @Param("statuses") Collection<OrderStatus> statuses, Limit limit);
+
+    // Moves up to :limit terminal orders submitted before :cutoff from orders to orders_archive
+    // in one statement, so a row is never in both tables or in neither. SKIP LOCKED keeps
+    // archivers on several instances, and rows locked by a compensation, out of each other's way.
+    // Orders from before submitted_at existed were backfilled with the epoch (SubmittedAtBackfill),
+    // so they count as old. Returns the number of rows moved.
+    @Modifying
+    @Transactional
+    @Query(value = """
+            WITH moved AS (
+                DELETE FROM orders WHERE id IN (
+                    SELECT id FROM orders
+                    WHERE status IN ('COMPLETED', 'FAILED') AND submitted_at < :cutoff
+                    LIMIT :limit
+                    FOR UPDATE SKIP LOCKED)
+                RETURNING id, tracking_number, user_id, client_name, package_details, delivery_address, status,
+                    cms_status, wms_status, ros_status, saga_progress, submitted_at
+            )
+            INSERT INTO orders_archive (id, tracking_number, user_id, client_name, package_details, delivery_address,
+                status, cms_status, wms_status, ros_status, saga_progress, submitted_at, archived_at)
+            SELECT id, tracking_number, user_id, client_name, package_details, delivery_address,
+                status, cms_status, wms_status, ros_status, saga_progress, submitted_at, now()
+            FROM moved
+            """, nativeQuery = true)
+    int archiveTerminalOrders(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+}
@@ -0,0 +1,28 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.swiftlogistics.order_orchestration_service.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKeyAndExpiresAtAfter(String userId, String idempotencyKey, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM idempotency_keys k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+
+    // Removes the user's row for this key if it has expired but not been purged yet, so the
+    // key can be inserted again. Runs in the caller's transaction.
+    @Modifying
+    @Query("DELETE FROM idempotency_keys k WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey AND k.expiresAt <= :now")
+    int deleteExpiredKey(@Param("userId") String userId, @Param("idempotencyKey") String idempotencyKey,
+                         @Param("now") Instant now);
+}
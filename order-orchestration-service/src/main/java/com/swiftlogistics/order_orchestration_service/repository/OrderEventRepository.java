@@ -0,0 +1,14 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.swiftlogistics.order_orchestration_service.model.OrderEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface OrderEventRepository extends JpaRepository<OrderEvent, Long> {
+
+    // [min(order_id), max(order_id)], both null when the log is empty.
+    @Query("SELECT MIN(e.orderId), MAX(e.orderId) FROM order_events e")
+    List<Object[]> findOrderIdRange();
+}
@@ -1,13 +1,171 @@
 package com.swiftlogistics.order_orchestration_service.repository;
 
+import com.swiftlogistics.order_orchestration_service.dto.OrderDto;
 import com.swiftlogistics.order_orchestration_service.model.Order;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order,Long> {
-    // --- NEW METHOD ---
-    // Spring Data JPA will automatically generate the implementation for this method.
-    // It will create a query equivalent to: "SELECT * FROM orders WHERE user_id = ?"
-    List<Order> findByUserId(String userId);
+    @Query("""
+            SELECT new com.swiftlogistics.order_orchestration_service.dto.OrderDto(
+                o.id, o.trackingNumber, o.clientName, o.packageDetails, o.deliveryAddress, o.Status,
+                o.cmsStatus, o.wmsStatus, o.rosStatus, o.userId)
+            FROM orders o
+            WHERE o.id = :id
+            """)
+    Optional<OrderDto> findDtoById(@Param("id") Long id);
+
+    // Keyset pagination over (user_id, id): each page starts strictly below the previous
+    // page's last id, so the cost depends on the page size and not on how many orders
+    // the user has. Rows are projected straight into OrderDto without loading entities.
+    @Query("""
+            SELECT new com.swiftlogistics.order_orchestration_service.dto.OrderDto(
+                o.id, o.trackingNumber, o.clientName, o.packageDetails, o.deliveryAddress, o.Status,
+                o.cmsStatus, o.wmsStatus, o.rosStatus, o.userId)
+            FROM orders o
+            WHERE o.userId = :userId AND o.id < :beforeId
+            ORDER BY o.id DESC
+            """)
+    List<OrderDto> findPageByUserId(@Param("userId") String userId, @Param("beforeId") long beforeId, Limit limit);
+
+    @Query("""
+            SELECT new com.swiftlogistics.order_orchestration_service.dto.OrderDto(
+                o.id, o.trackingNumber, o.clientName, o.packageDetails, o.deliveryAddress, o.Status,
+                o.cmsStatus, o.wmsStatus, o.rosStatus, o.userId)
+            FROM orders o
+            WHERE o.userId = :userId AND o.id < :beforeId AND o.Status IN :statuses
+            ORDER BY o.id DESC
+            """)
+    List<OrderDto> findPageByUserIdAndStatusIn(@Param("userId") String userId, @Param("beforeId") long beforeId,
+                                               @Param("statuses") Collection<OrderStatus> statuses, Limit limit);
+
+    // Records one system's confirmation for a whole batch of orders in a single statement.
+    // A row is only touched while the order is SUBMITTED and the bit is not yet set, so
+    // duplicate or late confirmations are no-ops and a redelivered batch is harmless.
+    // The statement that sets the last bit also flips the status to COMPLETED.
+    // The same statement appends the step's event, and COMPLETED where it applies, to order_events.
+    // Returns [id, user_id, new saga_progress, submitted_at as epoch millis] for every row that was updated.
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE orders SET
+                    saga_progress = saga_progress | :bit,
+                    cms_status = CASE WHEN :bit = 1 THEN 'CONFIRMED' ELSE cms_status END,
+                    wms_status = CASE WHEN :bit = 2 THEN 'CONFIRMED' ELSE wms_status END,
+                    ros_status = CASE WHEN :bit = 4 THEN 'CONFIRMED' ELSE ros_status END,
+                    status = CASE WHEN (saga_progress | :bit) = 7 THEN 'COMPLETED' ELSE status END
+                WHERE id IN (:ids) AND status = 'SUBMITTED' AND (saga_progress & :bit) = 0
+                RETURNING id, user_id, CAST(saga_progress AS integer) AS progress,
+                    CAST(EXTRACT(EPOCH FROM submitted_at) * 1000 AS bigint) AS submitted_at_millis
+            ), events AS (
+                INSERT INTO order_events (id, order_id, type, occurred_at)
+                SELECT nextval('order_events_seq'), id, :eventType, now() FROM updated
+                UNION ALL
+                SELECT nextval('order_events_seq'), id, 'COMPLETED', now() FROM updated WHERE progress = 7
+            )
+            SELECT id, user_id, progress, submitted_at_millis FROM updated
+            """, nativeQuery = true)
+    List<Object[]> applyConfirmations(@Param("ids") Collection<Long> ids, @Param("bit") int bit,
+                                      @Param("eventType") String eventType);
+
+    @Query("SELECT COUNT(o) FROM orders o WHERE o.Status = :status")
+    long countByStatus(@Param("status") OrderStatus status);
+
+    @Query("SELECT o.id FROM orders o WHERE o.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // One chunk of SUBMITTED orders in a sweeper partition whose current deadline has passed.
+    // The deadline moves out by one timeout for every retry already made. Orders whose
+    // compensation has been claimed (sweep_attempts past maxRetries) are not picked up again.
+    // The range condition on submitted_at (cutoff = now - timeout) uses idx_orders_status_submitted_at.
+    @Query(value = """
+            SELECT id FROM orders
+            WHERE status = 'SUBMITTED' AND submitted_at < :cutoff AND sweep_attempts <= :maxRetries
+              AND submitted_at + (sweep_attempts + 1) * CAST(:timeoutMs AS bigint) * interval '1 millisecond' < CAST(:now AS timestamptz)
+              AND (hashint8(id) & 2147483647) % :partitions = :partition
+            ORDER BY submitted_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findStuckSagas(@Param("now") Instant now, @Param("cutoff") Instant cutoff, @Param("timeoutMs") long timeoutMs,
+                              @Param("maxRetries") int maxRetries, @Param("partition") int partition, @Param("partitions") int partitions, @Param("limit") int limit);
+
+    // Gives orders from before submitted_at existed a submission time: SUBMITTED ones get
+    // :now, so the sweeper gives them one full timeout, and finished ones :finishedAt, so
+    // the archiver treats them as old. Returns the number of rows updated.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE orders SET submitted_at = CASE WHEN status = 'SUBMITTED' THEN CAST(:now AS timestamp with time zone) ELSE CAST(:finishedAt AS timestamp with time zone) END
+            WHERE submitted_at IS NULL
+            """, nativeQuery = true)
+    int backfillSubmittedAt(@Param("now") Instant now, @Param("finishedAt") Instant finishedAt);
+
+    // ddl-auto=update creates the column NOT NULL only on a new table; this tightens an existing one.
+    @Transactional
+    @Modifying
+    @Query(value = "ALTER TABLE orders ALTER COLUMN submitted_at SET NOT NULL", nativeQuery = true)
+    void requireSubmittedAt();
+
+    // Claims the next sweeper step for a stuck order, a retry or, once the retries are used
+    // up, its compensation; 0 if another sweep got there first or the saga finished in the meantime.
+    @Modifying
+    @Query(value = """
+            UPDATE orders SET sweep_attempts = sweep_attempts + 1
+            WHERE id = :id AND status = 'SUBMITTED' AND sweep_attempts = :attempts
+            """, nativeQuery = true)
+    int claimSweepAttempt(@Param("id") Long id, @Param("attempts") int attempts);
+
+    // Fails an order that is still SUBMITTED and appends its FAILED event. Returns the order's
+    // user_id, or empty if the order does not exist or already completed or failed, so a
+    // repeated compensation or one that loses to the last confirmation changes nothing.
+    @Transactional
+    @Query(value = """
+            WITH updated AS (
+                UPDATE orders SET status = 'FAILED', cms_status = 'FAILED', wms_status = 'FAILED', ros_status = 'FAILED'
+                WHERE id = :id AND status = 'SUBMITTED'
+                RETURNING id, user_id
+            ), events AS (
+                INSERT INTO order_events (id, order_id, type, occurred_at)
+                SELECT nextval('order_events_seq'), id, 'FAILED', now() FROM updated
+            )
+            SELECT user_id FROM updated
+            """, nativeQuery = true)
+    Optional<String> markFailed(@Param("id") Long id);
+
+    // Keyset walk over the order ids in (afterId, upToId], used by the snapshot replay.
+    @Query("SELECT o.id FROM orders o WHERE o.id > :afterId AND o.id <= :upToId ORDER BY o.id")
+    List<Long> findIdsInRange(@Param("afterId") long afterId, @Param("upToId") long upToId, Limit limit);
+
+    // Recomputes the saga columns of the given orders from their order_events in one statement.
+    // Orders without events (placed before the log existed) are left as they are.
+    @Modifying
+    @Query(value = """
+            UPDATE orders o SET
+                saga_progress = e.progress,
+                cms_status = CASE WHEN e.failed THEN 'FAILED' WHEN (e.progress & 1) <> 0 THEN 'CONFIRMED' ELSE 'PENDING' END,
+                wms_status = CASE WHEN e.failed THEN 'FAILED' WHEN (e.progress & 2) <> 0 THEN 'CONFIRMED' ELSE 'PENDING' END,
+                ros_status = CASE WHEN e.failed THEN 'FAILED' WHEN (e.progress & 4) <> 0 THEN 'CONFIRMED' ELSE 'PENDING' END,
+                status = CASE WHEN e.failed THEN 'FAILED' WHEN e.progress = 7 THEN 'COMPLETED' ELSE 'SUBMITTED' END
+            FROM (
+                SELECT order_id,
+                    CAST(bit_or(CASE type WHEN 'CMS_CONFIRMED' THEN 1 WHEN 'WMS_CONFIRMED' THEN 2
+                                          WHEN 'ROS_CONFIRMED' THEN 4 ELSE 0 END) AS smallint) AS progress,
+                    bool_or(type = 'FAILED') AS failed
+                FROM order_events
+                WHERE order_id IN (:ids)
+                GROUP BY order_id
+            ) e
+            WHERE o.id = e.order_id
+            """, nativeQuery = true)
+    int rebuildSnapshots(@Param("ids") Collection<Long> ids);
 }
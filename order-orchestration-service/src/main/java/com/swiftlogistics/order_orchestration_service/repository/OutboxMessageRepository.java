@@ -0,0 +1,58 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.swiftlogistics.order_orchestration_service.model.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Claims the oldest messages that are not claimed or waiting for a retry, until the
+    // given time, and commits at once: the relay publishes and waits for confirms without a
+    // transaction or row locks. SKIP LOCKED lets several relay instances claim concurrently
+    // without claiming the same row twice.
+    @Transactional
+    @Query(value = """
+            UPDATE order_outbox SET claimed_until = :until
+            WHERE id IN (
+                SELECT id FROM order_outbox
+                WHERE claimed_until IS NULL OR claimed_until < :now
+                ORDER BY id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED)
+            RETURNING *
+            """, nativeQuery = true)
+    List<OutboxMessage> claimNextBatch(@Param("now") Instant now, @Param("until") Instant until, @Param("limit") int limit);
+
+    // Counts a failed publish and holds the messages back until the given time.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE order_outbox SET attempts = attempts + 1, claimed_until = :until WHERE id IN (:ids)", nativeQuery = true)
+    int retryLater(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+    // Gives claimed messages back without counting an attempt, e.g. when the broker is down.
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE order_outbox SET claimed_until = :until WHERE id IN (:ids)", nativeQuery = true)
+    int releaseUntil(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+    // Moves messages out of the outbox into order_outbox_dead_letter, counting the last attempt.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            WITH moved AS (
+                DELETE FROM order_outbox WHERE id IN (:ids)
+                RETURNING id, order_id, exchange, routing_key, payload, created_at, attempts
+            )
+            INSERT INTO order_outbox_dead_letter (id, order_id, exchange, routing_key, payload, created_at, attempts, dead_lettered_at)
+            SELECT id, order_id, exchange, routing_key, payload, created_at, attempts + 1, now()
+            FROM moved
+            """, nativeQuery = true)
+    int deadLetter(@Param("ids") Collection<Long> ids);
+}
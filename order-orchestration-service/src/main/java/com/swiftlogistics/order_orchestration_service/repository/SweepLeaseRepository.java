@@ -0,0 +1,41 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.swiftlogistics.order_orchestration_service.model.SweepLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface SweepLeaseRepository extends JpaRepository<SweepLease, Integer> {
+
+    // Creates any missing lease rows; existing ones are left alone.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO saga_sweep_leases (partition_id, owner, lease_until)
+            SELECT p, NULL, CAST('epoch' AS timestamptz) FROM generate_series(0, :partitions - 1) AS p
+            ON CONFLICT (partition_id) DO NOTHING
+            """, nativeQuery = true)
+    int createMissing(@Param("partitions") int partitions);
+
+    // Takes the lease if it is free or expired. Returns 1 when this owner now holds it.
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE saga_sweep_leases SET owner = :owner, lease_until = :until
+            WHERE partition_id = :partition AND (lease_until < :now OR owner = :owner)
+            """, nativeQuery = true)
+    int tryAcquire(@Param("partition") int partition, @Param("owner") String owner,
+                   @Param("now") Instant now, @Param("until") Instant until);
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            UPDATE saga_sweep_leases SET lease_until = :now
+            WHERE partition_id = :partition AND owner = :owner
+            """, nativeQuery = true)
+    int release(@Param("partition") int partition, @Param("owner") String owner, @Param("now") Instant now);
+}
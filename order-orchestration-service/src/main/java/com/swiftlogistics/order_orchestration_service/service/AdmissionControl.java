@@ -0,0 +1,199 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.swiftlogistics.order_orchestration_service.config.ConcurrencyLimitedDataSource;
+import com.swiftlogistics.order_orchestration_service.config.RabbitMQConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for order placement.
+ *
+ * Each user has a token bucket (rate-per-second, burst); a batch takes one token per
+ * order. Users over their rate get 429. Independently, a global guard sheds all placements
+ * with 503 while the middleware's adapter queues are backed up or the average wait for a
+ * JDBC connection is over its threshold. Both signals are sampled on a schedule, so the
+ * check on the request path only reads a volatile field.
+ *
+ * On virtual threads the DataSource is a ConcurrencyLimitedDataSource and callers queue
+ * for its permits before they reach Hikari, so there the permit wait (jdbc.permit.wait)
+ * counts towards the connection wait as well as Hikari's acquire time.
+ */
+@Component
+public class AdmissionControl {
+
+    public record Rejection(int status, long retryAfterSeconds) {
+    }
+
+    private static final List<String> ADAPTER_QUEUES = List.of(RabbitMQConfig.QUEUE_CMS, RabbitMQConfig.QUEUE_WMS,
+            RabbitMQConfig.QUEUE_ROS);
+
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, TokenBucket> buckets;
+    private final double ratePerSecond;
+    private final int burst;
+    private final long maxQueueBacklog;
+    private final double maxPoolWaitMs;
+    private final long shedRetryAfterSeconds;
+    private final Counter userRejections;
+    private final Counter shedRejections;
+
+    private final ConcurrencyLimitedDataSource limiter;
+
+    private volatile String overloadReason;
+    private double lastAcquireTotalMs;
+    private long lastAcquireCount;
+    private long lastPermitWaitNanos;
+    private long lastPermitWaits;
+
+    public AdmissionControl(AmqpAdmin amqpAdmin,
+                            MeterRegistry meterRegistry,
+                            DataSource dataSource,
+                            @Value("${orders.admission.user.rate-per-second:20}") double ratePerSecond,
+                            @Value("${orders.admission.user.burst:100}") int burst,
+                            @Value("${orders.admission.max-users:100000}") long maxUsers,
+                            @Value("${orders.admission.max-queue-backlog:50000}") long maxQueueBacklog,
+                            @Value("${orders.admission.max-pool-wait-ms:200}") double maxPoolWaitMs,
+                            @Value("${orders.admission.shed-retry-after-seconds:5}") long shedRetryAfterSeconds) {
+        this.amqpAdmin = amqpAdmin;
+        this.meterRegistry = meterRegistry;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxQueueBacklog = maxQueueBacklog;
+        this.maxPoolWaitMs = maxPoolWaitMs;
+        this.shedRetryAfterSeconds = shedRetryAfterSeconds;
+        // Long enough for any debt from a large batch to be paid off before a bucket is dropped.
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+        this.userRejections = Counter.builder("orders.admission.rejected").tag("reason", "user-rate")
+                .register(meterRegistry);
+        this.shedRejections = Counter.builder("orders.admission.rejected").tag("reason", "overload")
+                .register(meterRegistry);
+        this.limiter = dataSource instanceof ConcurrencyLimitedDataSource limited ? limited : null;
+        if (limiter != null) {
+            FunctionTimer.builder("jdbc.permit.wait", limiter, ConcurrencyLimitedDataSource::permitWaits,
+                            ConcurrencyLimitedDataSource::permitWaitNanos, TimeUnit.NANOSECONDS)
+                    .description("Time spent waiting for a ConcurrencyLimitedDataSource permit.")
+                    .register(meterRegistry);
+        }
+    }
+
+    // Empty when the placement of the given number of orders may go ahead.
+    public Optional<Rejection> admit(String userId, int orders) {
+        if (overloadReason != null) {
+            shedRejections.increment();
+            return Optional.of(new Rejection(503, shedRetryAfterSeconds));
+        }
+        TokenBucket bucket = buckets.get(userId, id -> new TokenBucket(burst, ratePerSecond));
+        long waitNanos = bucket.tryTake(orders);
+        if (waitNanos > 0) {
+            userRejections.increment();
+            return Optional.of(new Rejection(429, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        }
+        return Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${orders.admission.sample-interval-ms:1000}")
+    public void sample() {
+        String reason = queueBacklogReason();
+        if (reason == null) {
+            reason = poolWaitReason();
+        }
+        if (reason != null && overloadReason == null) {
+            System.err.println("Shedding order placement: " + reason);
+        } else if (reason == null && overloadReason != null) {
+            System.out.println("Order placement no longer shed.");
+        }
+        overloadReason = reason;
+    }
+
+    private String queueBacklogReason() {
+        long backlog = 0;
+        for (String queue : ADAPTER_QUEUES) {
+            try {
+                QueueInformation info = amqpAdmin.getQueueInfo(queue);
+                if (info != null) {
+                    backlog += info.getMessageCount();
+                }
+            } catch (RuntimeException e) {
+                // Broker unreachable: the outbox absorbs placements, so do not shed on this alone.
+                return null;
+            }
+        }
+        return backlog > maxQueueBacklog ? "middleware queue backlog " + backlog + " > " + maxQueueBacklog : null;
+    }
+
+    // Average time to get a JDBC connection since the previous sample: the wait for a limiter
+    // permit, if the DataSource is limited, plus Hikari's acquire time.
+    private String poolWaitReason() {
+        double averageMs = 0;
+        if (limiter != null) {
+            long waitNanos = limiter.permitWaitNanos();
+            long waits = limiter.permitWaits();
+            if (waits > lastPermitWaits) {
+                averageMs += (waitNanos - lastPermitWaitNanos) / 1e6 / (waits - lastPermitWaits);
+            }
+            lastPermitWaitNanos = waitNanos;
+            lastPermitWaits = waits;
+        }
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        if (acquire != null) {
+            double totalMs = acquire.totalTime(TimeUnit.MILLISECONDS);
+            long count = acquire.count();
+            if (count > lastAcquireCount) {
+                averageMs += (totalMs - lastAcquireTotalMs) / (count - lastAcquireCount);
+            }
+            lastAcquireTotalMs = totalMs;
+            lastAcquireCount = count;
+        }
+        return averageMs > maxPoolWaitMs
+                ? String.format("average JDBC connection wait %.0fms > %.0fms", averageMs, maxPoolWaitMs) : null;
+    }
+
+    static final class TokenBucket {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(double capacity, double tokensPerSecond) {
+            this.capacity = capacity;
+            this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        // Takes the tokens and returns 0, or returns how long until they would be available.
+        // A request larger than the bucket is admitted once the bucket is full and leaves it
+        // in debt, so a big batch is paid for by the requests that follow it.
+        synchronized long tryTake(int count) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= Math.min(count, capacity)) {
+                tokens -= count;
+                return 0;
+            }
+            double missing = Math.min(count, capacity) - tokens;
+            return Math.max(1, (long) (missing / tokensPerNano));
+        }
+    }
+}
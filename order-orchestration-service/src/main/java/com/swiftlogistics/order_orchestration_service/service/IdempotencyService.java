@@ -0,0 +1,94 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.swiftlogistics.order_orchestration_service.dto.OrderResponse;
+import com.swiftlogistics.order_orchestration_service.model.IdempotencyRecord;
+import com.swiftlogistics.order_orchestration_service.repository.IdempotencyRecordRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Lookup of Idempotency-Key replays for POST /orders.
+ *
+ * A bounded in-memory LRU answers repeated keys seen by this instance without a query.
+ * Everything else falls back to the idempotency_keys table, whose unique index is the
+ * source of truth across instances. Keys expire after orders.idempotency.ttl.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRepository;
+
+    private final Cache<CacheKey, OrderResponse> recentResponses;
+    private final Duration ttl;
+
+    public IdempotencyService(@Value("${orders.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${orders.idempotency.cache-size:100000}") long cacheSize,
+                              MeterRegistry meterRegistry) {
+        this.ttl = ttl;
+        this.recentResponses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, recentResponses, "idempotencyKeys");
+    }
+
+    public Optional<OrderResponse> findResponse(String userId, String idempotencyKey) {
+        CacheKey cacheKey = new CacheKey(userId, idempotencyKey);
+        OrderResponse cached = recentResponses.getIfPresent(cacheKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<OrderResponse> stored = idempotencyRepository
+                .findByUserIdAndIdempotencyKeyAndExpiresAtAfter(userId, idempotencyKey, Instant.now())
+                .map(IdempotencyService::toResponse);
+        stored.ifPresent(response -> recentResponses.put(cacheKey, response));
+        return stored;
+    }
+
+    // Builds the row to insert in the same transaction as the order it refers to.
+    public IdempotencyRecord newRecord(String userId, String idempotencyKey, OrderResponse response) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUserId(userId);
+        record.setIdempotencyKey(idempotencyKey);
+        record.setOrderId(response.getOrderId());
+        record.setTrackingNumber(response.getTrackingNumber());
+        record.setMessage(response.getMessage());
+        record.setStatus(response.getStatus());
+        record.setExpiresAt(Instant.now().plus(ttl));
+        return record;
+    }
+
+    // Call once the transaction holding the record has committed.
+    public void remember(String userId, String idempotencyKey, OrderResponse response) {
+        recentResponses.put(new CacheKey(userId, idempotencyKey), response);
+    }
+
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            System.out.println("Purged " + deleted + " expired idempotency key(s).");
+        }
+    }
+
+    private static OrderResponse toResponse(IdempotencyRecord record) {
+        return new OrderResponse(record.getOrderId(), record.getTrackingNumber(), record.getMessage(), record.getStatus());
+    }
+
+    private record CacheKey(String userId, String idempotencyKey) {
+    }
+}
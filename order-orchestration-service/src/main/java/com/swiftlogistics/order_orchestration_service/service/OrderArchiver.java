@@ -0,0 +1,66 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.swiftlogistics.order_orchestration_service.repository.ArchivedOrderRepository;
+import com.swiftlogistics.order_orchestration_service.util.OrderIdGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keeps the orders table to the hot set. COMPLETED and FAILED orders never change again,
+ * so once they are older than archive-after-days they are moved to orders_archive in
+ * chunks. Reads fall back to the archive, see OrderProcessingService.
+ */
+@Component
+public class OrderArchiver {
+
+    // Slack for clock differences between the nodes that issued the ids.
+    private static final Duration CLOCK_MARGIN = Duration.ofDays(1);
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Value("${orders.archive.after-days:30}")
+    private int archiveAfterDays;
+
+    @Value("${orders.archive.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${orders.archive.max-chunks-per-run:100}")
+    private int maxChunksPerRun;
+
+    @Scheduled(fixedDelayString = "${orders.archive.interval-ms:600000}")
+    public void archive() {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(archiveAfterDays));
+        long moved = 0;
+        try {
+            for (int chunk = 0; chunk < maxChunksPerRun; chunk++) {
+                int count = archivedOrderRepository.archiveTerminalOrders(cutoff, chunkSize);
+                moved += count;
+                if (count < chunkSize) {
+                    break;
+                }
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Order archiver failed: " + e.getMessage());
+        }
+        if (moved > 0) {
+            System.out.println("Order archiver moved " + moved + " order(s) submitted before " + cutoff + " to the archive.");
+        }
+    }
+
+    /**
+     * Order ids at or above this value were issued too recently to have been archived.
+     * A page whose oldest hot order is above it cannot have archived orders in between,
+     * so the archive does not need to be read.
+     */
+    public long archivedIdUpperBound() {
+        Instant newestArchivable = Instant.now().minus(Duration.ofDays(archiveAfterDays)).plus(CLOCK_MARGIN);
+        return OrderIdGenerator.firstIdAt(newestArchivable.toEpochMilli());
+    }
+}
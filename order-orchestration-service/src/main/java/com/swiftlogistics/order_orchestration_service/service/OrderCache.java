@@ -0,0 +1,98 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.swiftlogistics.order_orchestration_service.dto.OrderDto;
+import com.swiftlogistics.order_orchestration_service.dto.OrderPage;
+import com.swiftlogistics.order_orchestration_service.event.OrderChangedEvent;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of the order queries used by GET /orders.
+ *
+ * Single orders are cached by id. Pages are grouped per user, so everything cached for a
+ * user can be dropped in one step when one of their orders changes. Entries are evicted
+ * by size and after a short TTL. Changes handled on this instance invalidate right away;
+ * those handled on another one arrive through OrderStreamService's orders.updates listener,
+ * and the TTL bounds staleness if that broadcast is lost.
+ */
+@Component
+public class OrderCache {
+
+    private final Cache<Long, OrderDto> orders;
+    private final Cache<String, Map<PageKey, OrderPage>> userPages;
+    private final int maxPagesPerUser;
+    private final Counter pageHits;
+    private final Counter pageMisses;
+
+    public OrderCache(@Value("${orders.cache.max-orders:100000}") long maxOrders,
+                      @Value("${orders.cache.max-users:10000}") long maxUsers,
+                      @Value("${orders.cache.max-pages-per-user:16}") int maxPagesPerUser,
+                      @Value("${orders.cache.ttl-ms:5000}") long ttlMs,
+                      MeterRegistry meterRegistry) {
+        this.orders = Caffeine.newBuilder()
+                .maximumSize(maxOrders)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        this.userPages = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        this.maxPagesPerUser = maxPagesPerUser;
+
+        CaffeineCacheMetrics.monitor(meterRegistry, orders, "orders");
+        this.pageHits = Counter.builder("cache.gets").tag("cache", "orderPages").tag("result", "hit")
+                .description("The number of times cache lookup methods have returned a cached value.")
+                .register(meterRegistry);
+        this.pageMisses = Counter.builder("cache.gets").tag("cache", "orderPages").tag("result", "miss")
+                .description("The number of times cache lookup methods have returned an uncached (newly loaded) value, or null.")
+                .register(meterRegistry);
+    }
+
+    // Returns the cached order, or loads it. Orders that do not exist are not cached.
+    public OrderDto getOrder(Long orderId, Function<Long, OrderDto> loader) {
+        return orders.get(orderId, loader);
+    }
+
+    public OrderPage getPage(String userId, Long cursor, int limit, Set<OrderStatus> statuses, Supplier<OrderPage> loader) {
+        PageKey key = new PageKey(cursor, limit, statuses);
+        Map<PageKey, OrderPage> pages = userPages.get(userId, id -> new ConcurrentHashMap<>());
+        OrderPage page = pages.get(key);
+        if (page != null) {
+            pageHits.increment();
+            return page;
+        }
+        pageMisses.increment();
+        page = loader.get();
+        if (pages.size() < maxPagesPerUser) {
+            pages.put(key, page);
+        }
+        return page;
+    }
+
+    // Called for local changes and, via OrderStreamService, for changes on other instances.
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        orders.invalidate(event.orderId());
+        if (event.userId() != null) {
+            userPages.invalidate(event.userId());
+        }
+    }
+
+    private record PageKey(Long cursor, int limit, Set<OrderStatus> statuses) {
+    }
+}
@@ -1,68 +1,169 @@
 package com.swiftlogistics.order_orchestration_service.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.swiftlogistics.order_orchestration_service.config.RabbitMQConfig;
+import com.swiftlogistics.order_orchestration_service.dto.OrderCommand;
 import com.swiftlogistics.order_orchestration_service.dto.OrderDto;
+import com.swiftlogistics.order_orchestration_service.dto.OrderPage;
 import com.swiftlogistics.order_orchestration_service.dto.OrderRequest;
 import com.swiftlogistics.order_orchestration_service.dto.OrderResponse;
+import com.swiftlogistics.order_orchestration_service.event.OrderChangedEvent;
 import com.swiftlogistics.order_orchestration_service.model.Order;
+import com.swiftlogistics.order_orchestration_service.model.OrderEvent;
+import com.swiftlogistics.order_orchestration_service.model.OrderEventType;
 import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import com.swiftlogistics.order_orchestration_service.model.OutboxMessage;
+import com.swiftlogistics.order_orchestration_service.model.SagaStep;
+import com.swiftlogistics.order_orchestration_service.repository.ArchivedOrderRepository;
+import com.swiftlogistics.order_orchestration_service.repository.IdempotencyRecordRepository;
+import com.swiftlogistics.order_orchestration_service.repository.OrderEventRepository;
 import com.swiftlogistics.order_orchestration_service.repository.OrderRepository;
+import com.swiftlogistics.order_orchestration_service.repository.OutboxMessageRepository;
+import com.swiftlogistics.order_orchestration_service.util.OrderIdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderProcessingService {
 
-    private static final String COMPENSATING_QUEUE = "compensating-transactions";
-
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private OutboxMessageRepository outboxRepository;
 
-    public OrderResponse placeOrder(OrderRequest orderRequest, String userId) {
-        try {
-            Order order = new Order();
-            order.setUserId(userId);
-            order.setClientName(orderRequest.getClientName());
-            order.setPackageDetails(orderRequest.getPackageDetails());
-            order.setDeliveryAddress(orderRequest.getDeliveryAddress());
-            order.setStatus(OrderStatus.SUBMITTED);
-            order.setCmsStatus("PENDING");
-            order.setWmsStatus("PENDING");
-            order.setRosStatus("PENDING");
-
-            Order savedOrder = orderRepository.save(order);
+    @Autowired
+    private OrderEventRepository orderEventRepository;
 
-            try {
-                // Correctly publish the order to the exchange with specific routing keys
-                rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_MIDDLEWARE, RabbitMQConfig.ROUTING_KEY_CMS, savedOrder);
-                rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_MIDDLEWARE, RabbitMQConfig.ROUTING_KEY_WMS, savedOrder);
-                rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_MIDDLEWARE, RabbitMQConfig.ROUTING_KEY_ROS, savedOrder);
-                System.out.println("Published order with ID " + savedOrder.getId() + " to middleware exchange for all three systems.");
-            } catch (Exception mqEx) {
-                savedOrder.setStatus(OrderStatus.FAILED);
-                savedOrder.setCmsStatus("FAILED");
-                savedOrder.setWmsStatus("FAILED");
-                savedOrder.setRosStatus("FAILED");
-                orderRepository.save(savedOrder);
-                return new OrderResponse(savedOrder.getId(),
-                        "Order saved but failed to publish to queue. Order marked as FAILED.",
-                        savedOrder.getStatus());
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @Autowired
+    private OrderArchiver orderArchiver;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRepository;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private PublisherConfirmTracker publisher;
+
+    @Autowired
+    private SagaMetrics sagaMetrics;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Reads the hot and archive pages of one list request from a single snapshot.
+    private TransactionTemplate snapshotReadTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderIdGenerator orderIdGenerator;
+
+    @Autowired
+    private OrderCache orderCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${orders.page.max-size:200}")
+    private int maxPageSize;
+
+    @Value("${saga.confirmation.retry-delay-ms:200}")
+    private long confirmationRetryDelayMs;
+
+    @Value("${saga.confirmation.max-attempts:5}")
+    private int confirmationMaxAttempts;
+
+    @PostConstruct
+    void initSnapshotReadTemplate() {
+        snapshotReadTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        snapshotReadTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        snapshotReadTemplate.setReadOnly(true);
+    }
+
+    // With an idempotency key, a repeated request returns the response of the first one
+    // without writing to the database or publishing anything.
+    public OrderResponse placeOrder(OrderRequest orderRequest, String userId, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            Optional<OrderResponse> replay = idempotencyService.findResponse(userId, idempotencyKey);
+            if (replay.isPresent()) {
+                System.out.println("Replaying response for idempotency key " + idempotencyKey + " of user " + userId);
+                return replay.get();
             }
+        }
 
-            return new OrderResponse(savedOrder.getId(),
+        try {
+            Order order = newOrder(orderRequest, userId);
+            OrderResponse response = new OrderResponse(order.getId(), order.getTrackingNumber(),
                     "Order received and processing asynchronously.",
-                    savedOrder.getStatus());
+                    order.getStatus());
+
+            // The order and its outbox message are committed together; the OutboxRelay
+            // publishes it in the background. One message per order: the broker fans it
+            // out to the CMS, WMS and ROS queues.
+            transactionTemplate.executeWithoutResult(status -> {
+                if (idempotencyKey != null) {
+                    // findResponse skips an expired row, but until the purge runs it still holds
+                    // the unique (user_id, idempotency_key) slot that the new row needs.
+                    idempotencyRepository.deleteExpiredKey(userId, idempotencyKey, Instant.now());
+                    // Flushed first so a concurrent duplicate fails before the order is written.
+                    idempotencyRepository.saveAndFlush(idempotencyService.newRecord(userId, idempotencyKey, response));
+                }
+                Order saved = orderRepository.save(order);
+                orderEventRepository.save(new OrderEvent(saved.getId(), OrderEventType.SUBMITTED));
+                outboxRepository.save(outboxMessage(saved, RabbitMQConfig.ROUTING_KEY_ORDER_CREATED));
+            });
+            if (idempotencyKey != null) {
+                idempotencyService.remember(userId, idempotencyKey, response);
+            }
+            sagaMetrics.sagaStarted(1);
+            eventPublisher.publishEvent(new OrderChangedEvent(order.getId(), userId));
+
+            return response;
 
+        } catch (DataIntegrityViolationException duplicate) {
+            // Another request with the same key won the race; answer with its response.
+            if (idempotencyKey != null) {
+                Optional<OrderResponse> replay = idempotencyService.findResponse(userId, idempotencyKey);
+                if (replay.isPresent()) {
+                    return replay.get();
+                }
+            }
+            System.err.println("Database error occurred: " + duplicate.getMessage());
+            return new OrderResponse(null,
+                    "Database error occurred while saving the order.",
+                    OrderStatus.FAILED);
         } catch (DataAccessException dbEx) {
             System.err.println("Database error occurred: " + dbEx.getMessage());
             return new OrderResponse(null,
@@ -76,99 +177,293 @@ public class OrderProcessingService {
         }
     }
 
-    public List<OrderDto> getOrdersForUser(String userId) {
-        List<Order> orders = orderRepository.findByUserId(userId);
-        return orders.stream()
-                .map(OrderDto::new)
-                .collect(Collectors.toList());
+    // Places a whole manifest at once. Every line is validated first; the valid ones are
+    // inserted together with their outbox messages in one transaction using JDBC batching.
+    // The result has one OrderResponse per manifest line, in the same order.
+    public List<OrderResponse> placeOrders(List<OrderRequest> orderRequests, String userId) {
+        OrderResponse[] results = new OrderResponse[orderRequests.size()];
+        List<Order> orders = new ArrayList<>(orderRequests.size());
+        List<Integer> lines = new ArrayList<>(orderRequests.size());
+
+        for (int line = 0; line < orderRequests.size(); line++) {
+            String error = validate(orderRequests.get(line));
+            if (error != null) {
+                results[line] = new OrderResponse(null, "Line " + (line + 1) + ": " + error, OrderStatus.FAILED);
+            } else {
+                orders.add(newOrder(orderRequests.get(line), userId));
+                lines.add(line);
+            }
+        }
+
+        if (!orders.isEmpty()) {
+            try {
+                List<Order> savedOrders = transactionTemplate.execute(status -> {
+                    List<Order> saved = orderRepository.saveAll(orders);
+                    List<OrderEvent> events = new ArrayList<>(saved.size());
+                    List<OutboxMessage> messages = new ArrayList<>(saved.size());
+                    for (Order order : saved) {
+                        events.add(new OrderEvent(order.getId(), OrderEventType.SUBMITTED));
+                        messages.add(outboxMessage(order, RabbitMQConfig.ROUTING_KEY_ORDER_CREATED));
+                    }
+                    orderEventRepository.saveAll(events);
+                    outboxRepository.saveAll(messages);
+                    return saved;
+                });
+                sagaMetrics.sagaStarted(savedOrders.size());
+                for (int i = 0; i < savedOrders.size(); i++) {
+                    Order saved = savedOrders.get(i);
+                    eventPublisher.publishEvent(new OrderChangedEvent(saved.getId(), userId));
+                    results[lines.get(i)] = new OrderResponse(saved.getId(), saved.getTrackingNumber(),
+                            "Order received and processing asynchronously.",
+                            saved.getStatus());
+                }
+                System.out.println("Accepted " + savedOrders.size() + " of " + orderRequests.size() + " orders from manifest.");
+            } catch (DataAccessException dbEx) {
+                System.err.println("Database error occurred: " + dbEx.getMessage());
+                for (Integer line : lines) {
+                    results[line] = new OrderResponse(null,
+                            "Database error occurred while saving the order.",
+                            OrderStatus.FAILED);
+                }
+            }
+        }
+        return Arrays.asList(results);
     }
 
-    private void checkAndCompleteSaga(Order order) {
-        if ("CONFIRMED".equals(order.getCmsStatus()) &&
-                "CONFIRMED".equals(order.getWmsStatus()) &&
-                "CONFIRMED".equals(order.getRosStatus())) {
+    private static String validate(OrderRequest orderRequest) {
+        if (orderRequest == null) {
+            return "order is empty.";
+        }
+        if (isBlank(orderRequest.getClientName())) {
+            return "clientName is required.";
+        }
+        if (isBlank(orderRequest.getPackageDetails())) {
+            return "packageDetails is required.";
+        }
+        if (isBlank(orderRequest.getDeliveryAddress())) {
+            return "deliveryAddress is required.";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 
-            order.setStatus(OrderStatus.COMPLETED);
-            orderRepository.save(order);
-            System.out.println("Saga for order ID " + order.getId() + " is COMPLETE.");
+    private Order newOrder(OrderRequest orderRequest, String userId) {
+        Order order = new Order();
+        order.setId(orderIdGenerator.nextId());
+        order.setTrackingNumber(OrderIdGenerator.trackingNumber(order.getId()));
+        order.setUserId(userId);
+        order.setClientName(orderRequest.getClientName());
+        order.setPackageDetails(orderRequest.getPackageDetails());
+        order.setDeliveryAddress(orderRequest.getDeliveryAddress());
+        order.setStatus(OrderStatus.SUBMITTED);
+        order.setSubmittedAt(Instant.now());
+        order.setCmsStatus("PENDING");
+        order.setWmsStatus("PENDING");
+        order.setRosStatus("PENDING");
+        return order;
+    }
+
+    // Used by the SagaTimeoutSweeper to resend an order to the systems that have not confirmed it yet.
+    List<OutboxMessage> outboxMessagesForUnconfirmedSteps(Order order) {
+        if (order.getSagaProgress() == 0) {
+            return List.of(outboxMessage(order, RabbitMQConfig.ROUTING_KEY_ORDER_CREATED));
+        }
+        List<OutboxMessage> messages = new ArrayList<>(SagaStep.values().length);
+        for (SagaStep step : SagaStep.values()) {
+            if ((order.getSagaProgress() & step.bit()) == 0) {
+                messages.add(outboxMessage(order, routingKey(step)));
+            }
         }
+        return messages;
+    }
+
+    private static String routingKey(SagaStep step) {
+        return switch (step) {
+            case CMS -> RabbitMQConfig.ROUTING_KEY_RETRY_CMS;
+            case WMS -> RabbitMQConfig.ROUTING_KEY_RETRY_WMS;
+            case ROS -> RabbitMQConfig.ROUTING_KEY_RETRY_ROS;
+        };
+    }
+
+    private OutboxMessage outboxMessage(Order order, String routingKey) {
+        try {
+            return new OutboxMessage(order.getId(), RabbitMQConfig.EXCHANGE_ORDERS, routingKey,
+                    objectMapper.writeValueAsString(OrderCommand.from(order)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize order " + order.getId(), e);
+        }
+    }
+
+    public OrderPage getOrdersForUser(String userId, Long cursor, int limit, Collection<OrderStatus> statuses) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        Set<OrderStatus> statusFilter = statuses == null || statuses.isEmpty() ? Set.of() : EnumSet.copyOf(statuses);
+        // The archiver moves an order from the hot table to the archive in one transaction;
+        // reading both from one snapshot sees it in exactly one of them.
+        return orderCache.getPage(userId, cursor, pageSize, statusFilter, () -> snapshotReadTemplate.execute(status -> {
+            long beforeId = cursor != null ? cursor : Long.MAX_VALUE;
+            List<OrderDto> orders = statusFilter.isEmpty()
+                    ? orderRepository.findPageByUserId(userId, beforeId, Limit.of(pageSize))
+                    : orderRepository.findPageByUserIdAndStatusIn(userId, beforeId, statusFilter, Limit.of(pageSize));
+            // The archive is only read when the hot page is short or reaches back past the
+            // newest id that can have been archived; archived rows are merged in by id.
+            if (orders.size() < pageSize || orders.get(orders.size() - 1).getId() < orderArchiver.archivedIdUpperBound()) {
+                List<OrderDto> archived = statusFilter.isEmpty()
+                        ? archivedOrderRepository.findPageByUserId(userId, beforeId, Limit.of(pageSize))
+                        : archivedOrderRepository.findPageByUserIdAndStatusIn(userId, beforeId, statusFilter, Limit.of(pageSize));
+                if (!archived.isEmpty()) {
+                    orders = mergeNewestFirst(orders, archived, pageSize);
+                }
+            }
+            Long nextCursor = orders.size() == pageSize ? orders.get(orders.size() - 1).getId() : null;
+            return new OrderPage(orders, nextCursor);
+        }));
+    }
+
+    // An id in both lists is kept once, from the hot table.
+    private static List<OrderDto> mergeNewestFirst(List<OrderDto> hot, List<OrderDto> archived, int limit) {
+        List<OrderDto> merged = new ArrayList<>(limit);
+        int h = 0;
+        int a = 0;
+        while (merged.size() < limit && (h < hot.size() || a < archived.size())) {
+            if (a == archived.size() || (h < hot.size() && hot.get(h).getId() >= archived.get(a).getId())) {
+                if (a < archived.size() && hot.get(h).getId().equals(archived.get(a).getId())) {
+                    a++;
+                }
+                merged.add(hot.get(h++));
+            } else {
+                merged.add(archived.get(a++));
+            }
+        }
+        return merged;
+    }
+
+    // Returns the order only if it belongs to the given user. Archived orders are only
+    // looked up when the order is not in the hot table.
+    public Optional<OrderDto> getOrderForUser(Long orderId, String userId) {
+        OrderDto order = orderCache.getOrder(orderId, id -> orderRepository.findDtoById(id)
+                .or(() -> archivedOrderRepository.findDtoById(id))
+                .orElse(null));
+        return Optional.ofNullable(order).filter(o -> userId.equals(o.getUserId()));
     }
 
     // These listeners are now correctly bound to the queues that the adapters publish to.
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_CMS_CONFIRMATION)
-    public void handleCmsConfirmation(Long orderId) {
-        System.out.println("Received CMS confirmation for order ID: " + orderId);
-        Optional<Order> orderOptional = orderRepository.findById(orderId);
-        if (orderOptional.isPresent()) {
-            Order order = orderOptional.get();
-            order.setCmsStatus("CONFIRMED");
-            orderRepository.save(order);
-            checkAndCompleteSaga(order);
-        } else {
-            System.err.println("Order ID " + orderId + " not found for CMS confirmation. Initiating compensation.");
-            rabbitTemplate.convertAndSend(COMPENSATING_QUEUE, orderId);
-        }
-    }
-
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_WMS_CONFIRMATION)
-    public void handleWmsConfirmation(Long orderId) {
-        System.out.println("Received WMS confirmation for order ID: " + orderId);
-        Optional<Order> orderOptional = orderRepository.findById(orderId);
-
-        // HANDLING RACE CONDITION
-        int maxRetries = 5;
-        int currentRetry = 0;
-        long retryDelayMillis = 100; // 100 milliseconds
-
-        while (orderOptional.isEmpty() && currentRetry < maxRetries) {
-            System.out.println("Order ID " + orderId + " not found. Retrying in " + retryDelayMillis + "ms... (Attempt " + (currentRetry + 1) + ")");
-            try {
-                Thread.sleep(retryDelayMillis);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("Retry thread interrupted.");
-                break;
+    // Each one receives a batch of confirmations and applies it with one statement.
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_CMS_CONFIRMATION, containerFactory = "confirmationBatchContainerFactory")
+    public void handleCmsConfirmations(List<Message> messages) {
+        System.out.println("Received " + messages.size() + " CMS confirmation(s).");
+        applyConfirmations(messages, SagaStep.CMS);
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_WMS_CONFIRMATION, containerFactory = "confirmationBatchContainerFactory")
+    public void handleWmsConfirmations(List<Message> messages) {
+        System.out.println("Received " + messages.size() + " WMS confirmation(s).");
+        applyConfirmations(messages, SagaStep.WMS);
+    }
+
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_ROS_CONFIRMATION, containerFactory = "confirmationBatchContainerFactory")
+    public void handleRosConfirmations(List<Message> messages) {
+        System.out.println("Received " + messages.size() + " ROS confirmation(s).");
+        applyConfirmations(messages, SagaStep.ROS);
+    }
+
+    // Applies a batch of confirmations with one conditional UPDATE, so concurrent confirmations
+    // for the same order cannot overwrite each other and completion needs no extra round trip.
+    // A message that cannot be parsed is dropped on its own; it never fails the rest of the batch.
+    private void applyConfirmations(List<Message> messages, SagaStep step) {
+        Map<Long, Integer> attempts = new LinkedHashMap<>();
+        for (Message message : messages) {
+            Long orderId = readOrderId(message);
+            if (orderId != null) {
+                attempts.merge(orderId, attemptOf(message), Math::max);
+            }
+        }
+        if (attempts.isEmpty()) {
+            return;
+        }
+
+        Set<Long> applied = new HashSet<>();
+        for (Object[] row : orderRepository.applyConfirmations(attempts.keySet(), step.bit(),
+                OrderEventType.confirmed(step).name())) {
+            Long orderId = ((Number) row[0]).longValue();
+            applied.add(orderId);
+            int progress = ((Number) row[2]).intValue();
+            sagaMetrics.stepConfirmed(step, ((Number) row[3]).longValue(), progress);
+            if (progress == SagaStep.ALL_CONFIRMED) {
+                System.out.println("Saga for order ID " + orderId + " is COMPLETE.");
             }
-            orderOptional = orderRepository.findById(orderId);
-            currentRetry++;
+            eventPublisher.publishEvent(new OrderChangedEvent(orderId, (String) row[1]));
         }
+        if (applied.size() == attempts.size()) {
+            return;
+        }
+
+        List<Long> unmatched = attempts.keySet().stream()
+                .filter(orderId -> !applied.contains(orderId))
+                .collect(Collectors.toList());
+        Set<Long> existing = new HashSet<>(orderRepository.findExistingIds(unmatched));
+        for (Long orderId : unmatched) {
+            if (existing.contains(orderId)) {
+                // Already confirmed by this system, or the order is no longer SUBMITTED.
+                System.out.println("Ignoring duplicate or late " + step + " confirmation for order ID " + orderId);
+            } else {
+                retryLater(orderId, step, attempts.get(orderId));
+            }
+        }
+    }
 
-        if (orderOptional.isPresent()) {
-            Order order = orderOptional.get();
-            order.setWmsStatus("CONFIRMED");
-            orderRepository.save(order);
-            checkAndCompleteSaga(order);
-        } else {
-            System.err.println("Order ID " + orderId + " not found after " + maxRetries + " retries. Initiating compensation.");
-            rabbitTemplate.convertAndSend(COMPENSATING_QUEUE, orderId);
+    private Long readOrderId(Message message) {
+        try {
+            return Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Dropping confirmation with unreadable order ID: " + e.getMessage());
+            return null;
         }
     }
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_ROS_CONFIRMATION)
-    public void handleRosConfirmation(Long orderId) {
-        System.out.println("Received ROS confirmation for order ID: " + orderId);
-        Optional<Order> orderOptional = orderRepository.findById(orderId);
-        if (orderOptional.isPresent()) {
-            Order order = orderOptional.get();
-            order.setRosStatus("CONFIRMED");
-            orderRepository.save(order);
-            checkAndCompleteSaga(order);
-        } else {
-            System.err.println("Order ID " + orderId + " not found for ROS confirmation. Initiating compensation.");
-            rabbitTemplate.convertAndSend(COMPENSATING_QUEUE, orderId);
+    private static int attemptOf(Message message) {
+        Object attempt = message.getMessageProperties().getHeader(RabbitMQConfig.HEADER_CONFIRMATION_ATTEMPT);
+        return attempt instanceof Number number ? number.intValue() : 0;
+    }
+
+    // HANDLING RACE CONDITION
+    // A confirmation can overtake the commit of its order. Instead of sleeping on the
+    // listener thread, park the message in the step's delay queue; the broker hands it
+    // back to the confirmation queue once the TTL expires.
+    private void retryLater(Long orderId, SagaStep step, int attempt) {
+        if (attempt >= confirmationMaxAttempts) {
+            System.err.println("Order ID " + orderId + " not found for " + step + " confirmation after "
+                    + attempt + " retries. Initiating compensation.");
+            publisher.convertAndSend(RabbitMQConfig.QUEUE_COMPENSATING_TRANSACTIONS, orderId);
+            return;
         }
+        sagaMetrics.confirmationRetried();
+        System.out.println("Order ID " + orderId + " not found. Retrying " + step + " confirmation in "
+                + confirmationRetryDelayMs + "ms... (Attempt " + (attempt + 1) + ")");
+        publisher.convertAndSend("", retryQueue(step), orderId, message -> {
+            message.getMessageProperties().setHeader(RabbitMQConfig.HEADER_CONFIRMATION_ATTEMPT, attempt + 1);
+            message.getMessageProperties().setExpiration(Long.toString(confirmationRetryDelayMs));
+            return message;
+        });
+    }
+
+    private static String retryQueue(SagaStep step) {
+        return switch (step) {
+            case CMS -> RabbitMQConfig.QUEUE_CMS_CONFIRMATION_RETRY;
+            case WMS -> RabbitMQConfig.QUEUE_WMS_CONFIRMATION_RETRY;
+            case ROS -> RabbitMQConfig.QUEUE_ROS_CONFIRMATION_RETRY;
+        };
     }
 
-    @RabbitListener(queues = COMPENSATING_QUEUE)
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_COMPENSATING_TRANSACTIONS)
     public void handleCompensation(Long orderId) {
         System.out.println("Received compensation request for order ID: " + orderId);
-        orderRepository.findById(orderId).ifPresent(order -> {
-            order.setStatus(OrderStatus.FAILED);
-            order.setCmsStatus("FAILED");
-            order.setWmsStatus("FAILED");
-            order.setRosStatus("FAILED");
-            orderRepository.save(order);
+        orderRepository.markFailed(orderId).ifPresent(userId -> {
             System.out.println("Order ID " + orderId + " status updated to FAILED. All previous actions should be rolled back.");
+            sagaMetrics.compensated();
+            eventPublisher.publishEvent(new OrderChangedEvent(orderId, userId));
         });
     }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.swiftlogistics.order_orchestration_service.repository.OrderEventRepository;
+import com.swiftlogistics.order_orchestration_service.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuilds the saga columns of every order from order_events, for recovery after a bad
+ * deploy wrote wrong snapshots. Enabled with orders.replay.enabled=true (for example
+ * ORDERS_REPLAY=true on a one-off instance) and runs once at startup.
+ *
+ * The id range of the log is split into one contiguous range per worker. Each worker walks
+ * its range in chunks and rebuilds a chunk with one set-based UPDATE in its own transaction,
+ * so the replay can be stopped and rerun at any point.
+ */
+@Component
+@ConditionalOnProperty(name = "orders.replay.enabled", havingValue = "true")
+public class OrderSnapshotReplayer implements ApplicationRunner {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orders.replay.threads:4}")
+    private int threads;
+
+    @Value("${orders.replay.chunk-size:1000}")
+    private int chunkSize;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Object[] range = orderEventRepository.findOrderIdRange().get(0);
+        if (range[0] == null) {
+            System.out.println("Order snapshot replay: the event log is empty, nothing to do.");
+            return;
+        }
+        long minId = ((Number) range[0]).longValue();
+        long maxId = ((Number) range[1]).longValue();
+        long start = System.nanoTime();
+
+        // Worker i handles ids in (bounds[i], bounds[i + 1]].
+        long span = Math.max(1, (maxId - minId) / threads + 1);
+        List<long[]> ranges = new ArrayList<>(threads);
+        for (long lower = minId - 1; lower < maxId; lower += span) {
+            ranges.add(new long[]{lower, Math.min(maxId, lower + span)});
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(ranges.size());
+        try {
+            List<Future<Long>> results = new ArrayList<>(ranges.size());
+            for (long[] bounds : ranges) {
+                results.add(workers.submit(() -> replayRange(bounds[0], bounds[1])));
+            }
+            long rebuilt = 0;
+            for (Future<Long> result : results) {
+                rebuilt += result.get();
+            }
+            System.out.println("Order snapshot replay: rebuilt " + rebuilt + " order(s) with " + ranges.size()
+                    + " worker(s) in " + (System.nanoTime() - start) / 1_000_000 + "ms.");
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private long replayRange(long afterId, long upToId) {
+        long rebuilt = 0;
+        long cursor = afterId;
+        while (true) {
+            List<Long> ids = orderRepository.findIdsInRange(cursor, upToId, Limit.of(chunkSize));
+            if (ids.isEmpty()) {
+                return rebuilt;
+            }
+            Integer updated = transactionTemplate.execute(status -> orderRepository.rebuildSnapshots(ids));
+            rebuilt += updated == null ? 0 : updated;
+            cursor = ids.get(ids.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.swiftlogistics.order_orchestration_service.config.RabbitMQConfig;
+import com.swiftlogistics.order_orchestration_service.dto.OrderDto;
+import com.swiftlogistics.order_orchestration_service.event.OrderChangedEvent;
+import com.swiftlogistics.order_orchestration_service.repository.OrderRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes order changes to the user's open GET /orders/stream connections.
+ *
+ * Changes arrive as OrderChangedEvents from placement and from the confirmation and
+ * compensation listeners on whichever instance handled them. Each one is published to the
+ * orders.updates fanout exchange and comes back on every instance's own queue, so the
+ * owner's connections get it wherever they are open. Every instance drops the order from
+ * its OrderCache when the broadcast arrives; the order is only loaded on an instance where
+ * its owner has a connection open.
+ *
+ * Each connection has its own buffer, keyed by order id, so repeated changes to one order
+ * collapse into its latest state. Writes happen on a virtual thread per connection, never
+ * on the listener thread, so a client that is slow to read holds up only itself. A client
+ * that lets its buffer fill up is disconnected; it reconnects and reloads the list.
+ */
+@Component
+public class OrderStreamService {
+
+    private final OrderRepository orderRepository;
+    private final OrderCache orderCache;
+    private final RabbitTemplate rabbitTemplate;
+    private final Map<String, Set<Connection>> connectionsByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final ExecutorService streamExecutor;
+    private final long connectionTimeoutMs;
+    private final int bufferSize;
+    private final int maxConnectionsPerUser;
+
+    public OrderStreamService(OrderRepository orderRepository,
+                              OrderCache orderCache,
+                              RabbitTemplate rabbitTemplate,
+                              @Value("${orders.stream.timeout-ms:1800000}") long connectionTimeoutMs,
+                              @Value("${orders.stream.buffer-size:256}") int bufferSize,
+                              @Value("${orders.stream.max-connections-per-user:5}") int maxConnectionsPerUser,
+                              MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        this.orderCache = orderCache;
+        this.rabbitTemplate = rabbitTemplate;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.bufferSize = bufferSize;
+        this.maxConnectionsPerUser = maxConnectionsPerUser;
+        this.streamExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("order-stream-", 1).factory());
+        Gauge.builder("orders.stream.connections", connectionCount, AtomicInteger::get)
+                .description("Open GET /orders/stream connections.")
+                .register(meterRegistry);
+    }
+
+    // Returns null when the user already has the maximum number of streams open.
+    public SseEmitter subscribe(String userId) {
+        SseEmitter emitter = new SseEmitter(connectionTimeoutMs);
+        Connection connection = new Connection(userId, emitter);
+        AtomicBoolean added = new AtomicBoolean();
+        // compute() keeps the add atomic with remove() dropping the user's last connection.
+        connectionsByUser.compute(userId, (id, connections) -> {
+            Set<Connection> set = connections != null ? connections : ConcurrentHashMap.<Connection>newKeySet();
+            if (set.size() < maxConnectionsPerUser) {
+                added.set(set.add(connection));
+            }
+            return set.isEmpty() ? null : set;
+        });
+        if (!added.get()) {
+            return null;
+        }
+        connectionCount.incrementAndGet();
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+        return emitter;
+    }
+
+    // Best effort, like the stream itself: a change lost here shows up when the client reloads.
+    @EventListener
+    public void onOrderChanged(OrderChangedEvent event) {
+        if (event.userId() == null) {
+            return;
+        }
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_ORDER_UPDATES, "", event);
+        } catch (AmqpException e) {
+            System.err.println("Could not publish change of order ID " + event.orderId() + " to the order streams: " + e.getMessage());
+        }
+    }
+
+    @RabbitListener(queues = "#{orderUpdatesQueue.name}")
+    public void onOrderUpdate(OrderChangedEvent event) {
+        // Also the way changes made on other instances reach this one's cache.
+        orderCache.onOrderChanged(event);
+        if (!connectionsByUser.containsKey(event.userId())) {
+            return;
+        }
+        orderRepository.findDtoById(event.orderId()).ifPresent(order -> {
+            for (Connection connection : connectionsByUser.getOrDefault(event.userId(), Set.of())) {
+                connection.offer(order);
+            }
+        });
+    }
+
+    // Keeps idle connections alive through proxies and detects clients that went away.
+    @Scheduled(fixedDelayString = "${orders.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Set<Connection> connections : connectionsByUser.values()) {
+            for (Connection connection : connections) {
+                connection.heartbeat();
+            }
+        }
+    }
+
+    private void remove(Connection connection) {
+        connectionsByUser.computeIfPresent(connection.userId, (id, connections) -> {
+            if (connections.remove(connection)) {
+                connectionCount.decrementAndGet();
+            }
+            return connections.isEmpty() ? null : connections;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streamExecutor.shutdownNow();
+        connectionsByUser.values().forEach(connections -> connections.forEach(c -> c.emitter.complete()));
+    }
+
+    private final class Connection {
+
+        private final String userId;
+        private final SseEmitter emitter;
+        // Guarded by itself. Latest state per order id, oldest change first.
+        private final LinkedHashMap<Long, OrderDto> buffer = new LinkedHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean heartbeatDue;
+
+        private Connection(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        void offer(OrderDto order) {
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize && !buffer.containsKey(order.getId())) {
+                    buffer.clear();
+                    remove(this);
+                    emitter.complete();
+                    return;
+                }
+                buffer.put(order.getId(), order);
+            }
+            scheduleDrain();
+        }
+
+        void heartbeat() {
+            heartbeatDue = true;
+            scheduleDrain();
+        }
+
+        // At most one drain per connection runs at a time; a send that blocks on a slow
+        // client parks only this connection's virtual thread and the buffer fills up behind it.
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                streamExecutor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    List<OrderDto> batch = takeBuffered();
+                    boolean sendHeartbeat = heartbeatDue && batch.isEmpty();
+                    heartbeatDue = false;
+                    if (batch.isEmpty() && !sendHeartbeat) {
+                        break;
+                    }
+                    if (sendHeartbeat) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    }
+                    for (OrderDto order : batch) {
+                        emitter.send(SseEmitter.event().name("order").id(order.getId().toString()).data(order));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter is already complete.
+                remove(this);
+                emitter.completeWithError(e);
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // A change may have been buffered between the last take and releasing the flag.
+            synchronized (buffer) {
+                if (buffer.isEmpty() && !heartbeatDue) {
+                    return;
+                }
+            }
+            scheduleDrain();
+        }
+
+        private List<OrderDto> takeBuffered() {
+            synchronized (buffer) {
+                if (buffer.isEmpty()) {
+                    return List.of();
+                }
+                List<OrderDto> batch = new ArrayList<>(buffer.values());
+                buffer.clear();
+                return batch;
+            }
+        }
+    }
+}
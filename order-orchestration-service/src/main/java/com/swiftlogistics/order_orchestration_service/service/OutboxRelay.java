@@ -0,0 +1,161 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.swiftlogistics.order_orchestration_service.model.OutboxMessage;
+import com.swiftlogistics.order_orchestration_service.repository.OutboxMessageRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the order outbox in batches. A batch is claimed in a short transaction of its own,
+ * every message in it is published through the PublisherConfirmTracker, and the relay waits
+ * for all broker confirms at once with no transaction open, so no row locks or connection
+ * are held meanwhile. The rows the broker acknowledged are then deleted.
+ *
+ * Anything still nacked after the tracker's resends, returned or unconfirmed stays in the
+ * table and is retried after retry-delay-ms times the attempts made so far. After
+ * max-attempts failed publishes a message is moved to order_outbox_dead_letter and counted
+ * in outbox.dead-lettered. A claim runs out after lease-ms, so the rows of a relay that died
+ * mid-batch are published again by another one.
+ */
+@Component
+public class OutboxRelay {
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private PublisherConfirmTracker publisher;
+
+    @Value("${outbox.relay.batch-size:200}")
+    private int batchSize;
+
+    @Value("${outbox.relay.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${outbox.relay.lease-ms:30000}")
+    private long leaseMs;
+
+    @Value("${outbox.relay.retry-delay-ms:1000}")
+    private long retryDelayMs;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    private final Counter deadLettered;
+
+    public OutboxRelay(MeterRegistry meterRegistry) {
+        this.deadLettered = Counter.builder("outbox.dead-lettered")
+                .description("Outbox messages moved to order_outbox_dead_letter after max-attempts failed publishes.")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:100}")
+    public void drain() {
+        Instant now = Instant.now();
+        List<OutboxMessage> batch;
+        try {
+            batch = outboxRepository.claimNextBatch(now, now.plusMillis(leaseMs), batchSize);
+        } catch (DataAccessException e) {
+            System.err.println("Outbox relay could not claim messages: " + e.getMessage());
+            return;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<CompletableFuture<Boolean>> sent = new ArrayList<>(batch.size());
+        try {
+            for (OutboxMessage outboxMessage : batch) {
+                sent.add(publisher.send(outboxMessage.getExchange(), outboxMessage.getRoutingKey(),
+                        toAmqpMessage(outboxMessage)));
+            }
+        } catch (AmqpException e) {
+            // Broker unavailable: keep whatever was not sent for the next run.
+            System.err.println("Outbox relay could not publish: " + e.getMessage());
+        }
+
+        List<Long> confirmed = new ArrayList<>(sent.size());
+        Map<Integer, List<Long>> failedByAttempts = new TreeMap<>();
+        List<Long> exhausted = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        for (int i = 0; i < sent.size(); i++) {
+            OutboxMessage outboxMessage = batch.get(i);
+            if (awaitAck(sent.get(i), deadline)) {
+                confirmed.add(outboxMessage.getId());
+            } else if (outboxMessage.getAttempts() + 1 >= maxAttempts) {
+                exhausted.add(outboxMessage.getId());
+            } else {
+                failedByAttempts.computeIfAbsent(outboxMessage.getAttempts() + 1, attempts -> new ArrayList<>())
+                        .add(outboxMessage.getId());
+            }
+        }
+        // Messages not published at all, because the broker could not be reached, are not
+        // counted as attempts; they wait one retry delay.
+        List<Long> unsent = batch.subList(sent.size(), batch.size()).stream().map(OutboxMessage::getId).toList();
+
+        try {
+            if (!confirmed.isEmpty()) {
+                outboxRepository.deleteAllByIdInBatch(confirmed);
+            }
+            Instant settledAt = Instant.now();
+            failedByAttempts.forEach((attempts, ids) -> {
+                outboxRepository.retryLater(ids, settledAt.plusMillis(attempts * retryDelayMs));
+                System.err.println("Outbox relay: " + ids.size() + " message(s) were not confirmed and will be retried.");
+            });
+            if (!unsent.isEmpty()) {
+                outboxRepository.releaseUntil(unsent, settledAt.plusMillis(retryDelayMs));
+            }
+            if (!exhausted.isEmpty()) {
+                outboxRepository.deadLetter(exhausted);
+                deadLettered.increment(exhausted.size());
+                System.err.println("Outbox relay: " + exhausted.size() + " message(s) failed " + maxAttempts
+                        + " times and were moved to order_outbox_dead_letter: " + exhausted);
+            }
+        } catch (DataAccessException e) {
+            // The claims run out after lease-ms and the rows are published again.
+            System.err.println("Outbox relay could not record the outcome of a batch: " + e.getMessage());
+        }
+    }
+
+    private boolean awaitAck(CompletableFuture<Boolean> confirmed, long deadlineNanos) {
+        try {
+            long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+            return confirmed.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private Message toAmqpMessage(OutboxMessage outboxMessage) {
+        return MessageBuilder.withBody(outboxMessage.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .setMessageId(outboxMessage.getId().toString())
+                .build();
+    }
+}
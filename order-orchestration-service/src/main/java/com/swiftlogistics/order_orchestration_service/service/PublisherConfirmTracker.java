@@ -0,0 +1,196 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes with correlated publisher confirms without blocking the caller.
+ *
+ * Every send gets a correlation id and an entry in the outstanding table; the broker's
+ * confirm removes it and records the confirm latency. A nacked message is re-sent after a
+ * short backoff, up to max-resends times. A returned message (acked, but routed to no
+ * queue) is not re-sent, as it would be unroutable again. The returned future completes
+ * with true once the broker has taken the message, and with false when it gave up.
+ */
+@Component
+public class PublisherConfirmTracker {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final Map<String, Pending> outstanding = new ConcurrentHashMap<>();
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final ScheduledExecutorService resendScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "publisher-resend");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final int maxResends;
+    private final long resendDelayMs;
+    private final long confirmTimeoutMs;
+    private final Timer confirmLatency;
+    private final Counter nacks;
+    private final Counter returns;
+    private final Counter resends;
+    private final Counter failures;
+
+    public PublisherConfirmTracker(RabbitTemplate rabbitTemplate,
+                                   @Value("${publisher.confirms.max-resends:3}") int maxResends,
+                                   @Value("${publisher.confirms.resend-delay-ms:200}") long resendDelayMs,
+                                   @Value("${publisher.confirms.timeout-ms:30000}") long confirmTimeoutMs,
+                                   MeterRegistry meterRegistry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.maxResends = maxResends;
+        this.resendDelayMs = resendDelayMs;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+
+        rabbitTemplate.setConfirmCallback(this::onConfirm);
+        rabbitTemplate.setReturnsCallback(this::onReturn);
+
+        Gauge.builder("publisher.confirms.in-flight", outstanding, Map::size)
+                .description("Messages published and not yet confirmed by the broker.")
+                .register(meterRegistry);
+        this.confirmLatency = Timer.builder("publisher.confirm.latency")
+                .description("Time from publish to the broker's confirm.")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.nacks = Counter.builder("publisher.confirms").tag("result", "nack").register(meterRegistry);
+        this.returns = Counter.builder("publisher.confirms").tag("result", "returned").register(meterRegistry);
+        this.resends = Counter.builder("publisher.resends").register(meterRegistry);
+        this.failures = Counter.builder("publisher.failures")
+                .description("Messages that could not be published or that the broker never accepted.")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Boolean> send(String exchange, String routingKey, Message message) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            publish(new Pending(exchange, routingKey, message, 0, result, 0));
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+        return result;
+    }
+
+    // Converts the payload with the template's converter (JSON) before sending.
+    public CompletableFuture<Boolean> convertAndSend(String exchange, String routingKey, Object payload,
+                                                     MessagePostProcessor postProcessor) {
+        Message message = postProcessor.postProcessMessage(
+                rabbitTemplate.getMessageConverter().toMessage(payload, new MessageProperties()));
+        return send(exchange, routingKey, message);
+    }
+
+    public CompletableFuture<Boolean> convertAndSend(String routingKey, Object payload) {
+        return convertAndSend("", routingKey, payload, message -> message);
+    }
+
+    // A failure to write to the channel is thrown to the caller; only broker nacks are re-sent.
+    private void publish(Pending pending) {
+        String correlationId = Long.toString(correlationIds.incrementAndGet());
+        outstanding.put(correlationId, pending.sentAt(System.nanoTime()));
+        try {
+            rabbitTemplate.send(pending.exchange(), pending.routingKey(), pending.message(),
+                    new CorrelationData(correlationId));
+        } catch (RuntimeException e) {
+            outstanding.remove(correlationId);
+            throw e;
+        }
+    }
+
+    private void onConfirm(CorrelationData correlation, boolean ack, String cause) {
+        if (correlation == null) {
+            return;
+        }
+        Pending pending = outstanding.remove(correlation.getId());
+        if (pending == null) {
+            return;
+        }
+        confirmLatency.record(System.nanoTime() - pending.sentAtNanos(), TimeUnit.NANOSECONDS);
+
+        if (ack) {
+            // Returns are delivered before the confirm, so a returned message is known here.
+            pending.result().complete(correlation.getReturned() == null);
+            return;
+        }
+        nacks.increment();
+        if (pending.attempt() >= maxResends) {
+            fail(pending, "nacked after " + pending.attempt() + " resend(s): " + cause);
+            return;
+        }
+        // Never publish from the confirm callback itself: it runs on the connection's thread.
+        resends.increment();
+        Pending next = pending.nextAttempt();
+        resendScheduler.schedule(() -> resend(next), resendDelayMs * next.attempt(), TimeUnit.MILLISECONDS);
+    }
+
+    private void resend(Pending pending) {
+        try {
+            publish(pending);
+        } catch (RuntimeException e) {
+            fail(pending, "resend failed: " + e.getMessage());
+        }
+    }
+
+    private void onReturn(ReturnedMessage returned) {
+        returns.increment();
+        System.err.println("Message to " + returned.getExchange() + "/" + returned.getRoutingKey()
+                + " was returned by the broker: " + returned.getReplyText());
+    }
+
+    // Confirms normally arrive in milliseconds, and a closed channel nacks everything it had
+    // outstanding. This only catches entries that were lost some other way.
+    @Scheduled(fixedDelayString = "${publisher.confirms.timeout-ms:30000}")
+    public void expireStale() {
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+        outstanding.entrySet().removeIf(entry -> {
+            if (entry.getValue().sentAtNanos() - cutoff < 0) {
+                fail(entry.getValue(), "no confirm within " + confirmTimeoutMs + "ms");
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private void fail(Pending pending, String reason) {
+        failures.increment();
+        System.err.println("Message to " + pending.exchange() + "/" + pending.routingKey() + " was not confirmed, "
+                + reason);
+        pending.result().complete(false);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        resendScheduler.shutdownNow();
+    }
+
+    private record Pending(String exchange, String routingKey, Message message, int attempt,
+                           CompletableFuture<Boolean> result, long sentAtNanos) {
+
+        Pending sentAt(long nanos) {
+            return new Pending(exchange, routingKey, message, attempt, result, nanos);
+        }
+
+        Pending nextAttempt() {
+            return new Pending(exchange, routingKey, message, attempt + 1, result, 0);
+        }
+    }
+}
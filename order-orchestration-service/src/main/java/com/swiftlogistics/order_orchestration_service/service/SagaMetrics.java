@@ -0,0 +1,98 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import com.swiftlogistics.order_orchestration_service.model.SagaStep;
+import com.swiftlogistics.order_orchestration_service.repository.OrderRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Saga metrics, exported through /actuator/prometheus.
+ *
+ * saga.stage.latency{stage=cms|wms|ros|completed} is the time from submission to each
+ * system's confirmation and to completion, with a histogram so p99 per stage can be
+ * compared and alerted on. The in-flight gauge is the number of SUBMITTED orders,
+ * refreshed periodically from the database so it is the same on every instance.
+ */
+@Component
+public class SagaMetrics {
+
+    private final OrderRepository orderRepository;
+    private final Map<SagaStep, Timer> stepLatency = new EnumMap<>(SagaStep.class);
+    private final Timer completedLatency;
+    private final Counter started;
+    private final Counter compensations;
+    private final Counter confirmationRetries;
+    private final AtomicLong inFlight = new AtomicLong();
+
+    public SagaMetrics(OrderRepository orderRepository, MeterRegistry meterRegistry) {
+        this.orderRepository = orderRepository;
+        for (SagaStep step : SagaStep.values()) {
+            stepLatency.put(step, stageTimer(step.name().toLowerCase(), meterRegistry));
+        }
+        this.completedLatency = stageTimer("completed", meterRegistry);
+        this.started = Counter.builder("saga.started")
+                .description("Orders accepted and handed to the saga.")
+                .register(meterRegistry);
+        this.compensations = Counter.builder("saga.compensations")
+                .description("Orders marked FAILED by a compensating transaction.")
+                .register(meterRegistry);
+        this.confirmationRetries = Counter.builder("saga.confirmation.retries")
+                .description("Confirmations parked in a delay queue because their order was not found yet.")
+                .register(meterRegistry);
+        Gauge.builder("saga.in-flight", inFlight, AtomicLong::get)
+                .description("Orders in SUBMITTED state.")
+                .register(meterRegistry);
+    }
+
+    private static Timer stageTimer(String stage, MeterRegistry meterRegistry) {
+        return Timer.builder("saga.stage.latency")
+                .description("Time from order submission to the stage.")
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(meterRegistry);
+    }
+
+    public void sagaStarted(int orders) {
+        started.increment(orders);
+    }
+
+    // Called for every confirmation that was applied; progress is the saga bitmask after it.
+    public void stepConfirmed(SagaStep step, long submittedAtMillis, int progress) {
+        long elapsed = Math.max(0, System.currentTimeMillis() - submittedAtMillis);
+        stepLatency.get(step).record(elapsed, TimeUnit.MILLISECONDS);
+        if (progress == SagaStep.ALL_CONFIRMED) {
+            completedLatency.record(elapsed, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void compensated() {
+        compensations.increment();
+    }
+
+    public void confirmationRetried() {
+        confirmationRetries.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${saga.metrics.in-flight-refresh-ms:15000}")
+    public void refreshInFlight() {
+        try {
+            inFlight.set(orderRepository.countByStatus(OrderStatus.SUBMITTED));
+        } catch (DataAccessException e) {
+            System.err.println("Could not count in-flight sagas: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.swiftlogistics.order_orchestration_service.config.RabbitMQConfig;
+import com.swiftlogistics.order_orchestration_service.model.Order;
+import com.swiftlogistics.order_orchestration_service.model.OutboxMessage;
+import com.swiftlogistics.order_orchestration_service.repository.OrderRepository;
+import com.swiftlogistics.order_orchestration_service.repository.OutboxMessageRepository;
+import com.swiftlogistics.order_orchestration_service.repository.SweepLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+/**
+ * Finds sagas that never completed because CMS, WMS or ROS did not confirm them.
+ *
+ * The order space is split into hash partitions, each guarded by a lease row, so
+ * instances sweep different partitions and a partition is never swept twice at once.
+ * Each run reads at most chunk-size stuck orders per partition. A stuck order is first
+ * resent to the systems that have not confirmed it, up to max-retries times, each time
+ * waiting one more timeout. After that it goes to the compensating-transactions queue,
+ * once: the compensation is claimed like a retry and published through the outbox in the
+ * same transaction, and a claimed order is not swept again.
+ */
+@Component
+public class SagaTimeoutSweeper {
+
+    private final String owner = "order-orchestration-" + UUID.randomUUID();
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
+    @Autowired
+    private SweepLeaseRepository leaseRepository;
+
+    @Autowired
+    private OrderProcessingService orderProcessingService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${orders.sweeper.timeout-ms:120000}")
+    private long timeoutMs;
+
+    @Value("${orders.sweeper.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${orders.sweeper.partitions:16}")
+    private int partitions;
+
+    @Value("${orders.sweeper.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${orders.sweeper.lease-ms:60000}")
+    private long leaseMs;
+
+    @Scheduled(initialDelayString = "${orders.sweeper.interval-ms:30000}", fixedDelayString = "${orders.sweeper.interval-ms:30000}")
+    public void sweep() {
+        leaseRepository.createMissing(partitions);
+
+        // Visit partitions in random order so instances running at the same time spread out.
+        List<Integer> visitOrder = new ArrayList<>(IntStream.range(0, partitions).boxed().toList());
+        Collections.shuffle(visitOrder);
+        for (int partition : visitOrder) {
+            Instant now = Instant.now();
+            if (leaseRepository.tryAcquire(partition, owner, now, now.plusMillis(leaseMs)) == 0) {
+                continue;
+            }
+            try {
+                sweepPartition(partition);
+            } catch (RuntimeException e) {
+                System.err.println("Saga sweep of partition " + partition + " failed: " + e.getMessage());
+            } finally {
+                leaseRepository.release(partition, owner, Instant.now());
+            }
+        }
+    }
+
+    private void sweepPartition(int partition) {
+        Instant now = Instant.now();
+        List<Long> stuck = orderRepository.findStuckSagas(now, now.minusMillis(timeoutMs), timeoutMs,
+                maxRetries, partition, partitions, chunkSize);
+        if (stuck.isEmpty()) {
+            return;
+        }
+        System.out.println("Saga sweeper found " + stuck.size() + " stuck order(s) in partition " + partition + ".");
+
+        for (Order order : orderRepository.findAllById(stuck)) {
+            if (order.getSweepAttempts() < maxRetries) {
+                retry(order);
+            } else {
+                compensate(order);
+            }
+        }
+    }
+
+    // Moves the attempt counter past max-retries, which takes the order out of the sweep,
+    // and queues the compensation in the same transaction; only the sweep that wins the
+    // claim sends it.
+    private void compensate(Order order) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (orderRepository.claimSweepAttempt(order.getId(), order.getSweepAttempts()) == 1) {
+                outboxRepository.save(new OutboxMessage(order.getId(), "",
+                        RabbitMQConfig.QUEUE_COMPENSATING_TRANSACTIONS, order.getId().toString()));
+                System.err.println("Order ID " + order.getId() + " did not complete after " + order.getSweepAttempts()
+                        + " retries. Initiating compensation.");
+            }
+        });
+    }
+
+    // Resends the order to the systems that have not confirmed it, through the outbox.
+    // The attempt counter is bumped conditionally so a concurrent sweep cannot double up.
+    private void retry(Order order) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (orderRepository.claimSweepAttempt(order.getId(), order.getSweepAttempts()) == 1) {
+                outboxRepository.saveAll(orderProcessingService.outboxMessagesForUnconfirmedSteps(order));
+                System.out.println("Resent order ID " + order.getId() + " to unconfirmed systems (retry "
+                        + (order.getSweepAttempts() + 1) + " of " + maxRetries + ").");
+            }
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.swiftlogistics.order_orchestration_service.service;
+
+import com.swiftlogistics.order_orchestration_service.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Fills in submitted_at for orders created before the column existed and then makes it
+ * NOT NULL. The SagaTimeoutSweeper selects by "submitted_at < cutoff", which never matches
+ * a NULL, so without this those SUBMITTED orders would never be retried or compensated.
+ * Keeping the column NOT NULL lets that range stay an index condition on
+ * idx_orders_status_submitted_at instead of adding an "OR submitted_at IS NULL" branch.
+ *
+ * Runs at every startup and is a no-op once every row has a value.
+ */
+@Component
+public class SubmittedAtBackfill implements ApplicationRunner {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            int backfilled = orderRepository.backfillSubmittedAt(Instant.now(), Instant.EPOCH);
+            if (backfilled > 0) {
+                System.out.println("Backfilled submitted_at for " + backfilled + " order(s) created before it existed.");
+            }
+            orderRepository.requireSubmittedAt();
+        } catch (DataAccessException e) {
+            // Not fatal: the next start tries again, and new orders always have a submitted_at.
+            System.err.println("submitted_at backfill failed: " + e.getMessage());
+        }
+    }
+}
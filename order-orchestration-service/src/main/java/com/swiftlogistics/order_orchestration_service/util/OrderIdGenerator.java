@@ -0,0 +1,93 @@
+package com.swiftlogistics.order_orchestration_service.util;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates time-ordered 64-bit order ids in memory, without asking the database.
+ *
+ * Layout (most significant bit first):
+ *   1 bit unused | 41 bits milliseconds since EPOCH_MILLIS | 10 bits node id | 12 bits sequence
+ *
+ * Each node can issue 4096 ids per millisecond. Ids from different nodes never collide
+ * as long as every running instance has its own orders.id.node-id. When a millisecond's
+ * sequence is exhausted, or the clock goes backwards, the generator keeps counting on
+ * from the last issued timestamp instead of waiting, so nextId() never blocks.
+ */
+@Component
+public class OrderIdGenerator {
+
+    // 2025-01-01T00:00:00Z, gives ids until roughly 2094
+    public static final long EPOCH_MILLIS = 1735689600000L;
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Crockford base32: no I, L, O or U, so tracking numbers are easy to read out loud
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    // Crockford check symbols for values 32..36
+    private static final char[] CHECK_SYMBOLS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ*~$=U".toCharArray();
+    private static final String TRACKING_PREFIX = "SWL";
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+
+    // (timestamp << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong lastState = new AtomicLong();
+
+    @Autowired
+    public OrderIdGenerator(@Value("${orders.id.node-id:0}") long nodeId) {
+        this(nodeId, System::currentTimeMillis);
+    }
+
+    OrderIdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("orders.id.node-id must be between 0 and " + MAX_NODE_ID + " but was " + nodeId);
+        }
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    public long nextId() {
+        while (true) {
+            long last = lastState.get();
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            // A new millisecond restarts the sequence; otherwise count on. An exhausted
+            // sequence carries into the timestamp bits, borrowing the next millisecond.
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (lastState.compareAndSet(last, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * The smallest id this generator can issue at the given instant. Ids are ordered by
+     * time, so every id issued before that instant, on any node, is smaller.
+     */
+    public static long firstIdAt(long epochMillis) {
+        return Math.max(0, epochMillis - EPOCH_MILLIS) << (NODE_BITS + SEQUENCE_BITS);
+    }
+
+    /**
+     * Derives the customer-facing tracking number for an order id, e.g. SWL-0C9QJ2Z7Y0001-K.
+     * It is the id in Crockford base32 followed by a mod-37 check symbol that catches
+     * single-character typos.
+     */
+    public static String trackingNumber(long orderId) {
+        char[] digits = new char[13];
+        long value = orderId;
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        char check = CHECK_SYMBOLS[(int) Long.remainderUnsigned(orderId, 37)];
+        return TRACKING_PREFIX + "-" + new String(digits) + "-" + check;
+    }
+}
@@ -1,13 +1,35 @@
 package com.swiftlogistics.order_orchestration_service;
 
+import com.swiftlogistics.order_orchestration_service.util.OrderIdGenerator;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Boots the whole application context, so a bean that cannot be wired fails the build
+ * rather than the first deployment. Runs on an in-memory H2 database; RabbitMQ is not
+ * needed for the context to start (the listener containers keep retrying in the background).
+ * Scheduled jobs that use PostgreSQL-only SQL log errors against H2; only wiring is checked.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:context-test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.hibernate.ddl-auto=create-drop",
+		"spring.jpa.show-sql=false",
+		"eureka.client.enabled=false"
+})
 class OrderOrchestrationServiceApplicationTests {
 
+	@Autowired
+	private OrderIdGenerator orderIdGenerator;
+
 	@Test
 	void contextLoads() {
+		assertTrue(orderIdGenerator.nextId() > 0);
 	}
 
 }
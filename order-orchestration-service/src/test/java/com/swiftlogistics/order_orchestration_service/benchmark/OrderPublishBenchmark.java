@@ -0,0 +1,157 @@
+package com.swiftlogistics.order_orchestration_service.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.swiftlogistics.order_orchestration_service.config.RabbitMQConfig;
+import com.swiftlogistics.order_orchestration_service.dto.OrderCommand;
+import com.swiftlogistics.order_orchestration_service.model.Order;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer-side cost of publishing one order: the old layout serialized the order and
+ * published it three times (cms, wms and ros routing keys on a direct exchange), the
+ * current layout serializes the slim OrderCommand once and lets the topic exchange fan it out.
+ *
+ * The RabbitTemplate writes to an in-memory channel that only counts what would have
+ * crossed the wire, so the numbers are JSON encoding plus the template's own publish
+ * path, without network noise. The publishedBytes counter is the broker ingress per order.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=...OrderPublishBenchmark -Dexec.classpathScope=test
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class OrderPublishBenchmark {
+
+    private static final String[] OLD_ROUTING_KEYS = {"cms.routing.key", "wms.routing.key", "ros.routing.key"};
+
+    private ObjectMapper objectMapper;
+    private RabbitTemplate rabbitTemplate;
+    private Order order;
+    private long messageId;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Ingress {
+        public long publishedBytes;
+        public long publishedMessages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            publishedBytes = 0;
+            publishedMessages = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        order = new Order();
+        order.setId(1_234_567_890_123L);
+        order.setTrackingNumber("SWL-0000014XT3K8Q-7");
+        order.setUserId("0b6f4c3e-6c2d-4f5e-9a8b-2f1d3c4b5a69");
+        order.setClientName("Acme Retail (Pvt) Ltd");
+        order.setPackageDetails("2 boxes, 14.5 kg, fragile: ceramic tableware");
+        order.setDeliveryAddress("No. 42, Galle Road, Colombo 03, Sri Lanka");
+        order.setStatus(OrderStatus.SUBMITTED);
+        order.setCmsStatus("PENDING");
+        order.setWmsStatus("PENDING");
+        order.setRosStatus("PENDING");
+        order.setSubmittedAt(Instant.parse("2026-01-01T00:00:00Z"));
+        rabbitTemplate = new RabbitTemplate(countingConnectionFactory());
+    }
+
+    @Benchmark
+    public void threePublishesPerOrder(Ingress ingress) throws Exception {
+        for (String routingKey : OLD_ROUTING_KEYS) {
+            Message message = toAmqpMessage(objectMapper.writeValueAsBytes(order));
+            rabbitTemplate.send("middleware.exchange", routingKey, message);
+            count(ingress, message);
+        }
+    }
+
+    @Benchmark
+    public void onePublishPerOrder(Ingress ingress) throws Exception {
+        Message message = toAmqpMessage(objectMapper.writeValueAsBytes(OrderCommand.from(order)));
+        rabbitTemplate.send(RabbitMQConfig.EXCHANGE_ORDERS, RabbitMQConfig.ROUTING_KEY_ORDER_CREATED, message);
+        count(ingress, message);
+    }
+
+    // Same message shape as the OutboxRelay sends.
+    private Message toAmqpMessage(byte[] body) {
+        return MessageBuilder.withBody(body)
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding("UTF-8")
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .setMessageId(Long.toString(++messageId))
+                .build();
+    }
+
+    private static void count(Ingress ingress, Message message) {
+        ingress.publishedBytes += message.getBody().length;
+        ingress.publishedMessages++;
+    }
+
+    // A connection factory whose channels accept every call and drop it.
+    private static ConnectionFactory countingConnectionFactory() {
+        com.rabbitmq.client.Channel channel = stub(com.rabbitmq.client.Channel.class);
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "createChannel" -> channel;
+                    case "isOpen" -> true;
+                    default -> defaultValue(method.getReturnType());
+                });
+        return (ConnectionFactory) Proxy.newProxyInstance(ConnectionFactory.class.getClassLoader(),
+                new Class<?>[]{ConnectionFactory.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "createConnection" -> connection;
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> method.getName().equals("isOpen") ? Boolean.TRUE : defaultValue(method.getReturnType()));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        return null;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(OrderPublishBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
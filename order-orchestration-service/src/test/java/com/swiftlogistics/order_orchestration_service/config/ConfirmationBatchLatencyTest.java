@@ -0,0 +1,103 @@
+package com.swiftlogistics.order_orchestration_service.config;
+
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Consumer;
+import com.rabbitmq.client.Envelope;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * A partial confirmation batch must be delivered within a bounded time of its first
+ * message, even when messages keep trickling in faster than the batch timeout. The
+ * broker is a mocked channel the test pushes deliveries into.
+ */
+class ConfirmationBatchLatencyTest {
+
+    private static final int BATCH_SIZE = 50;
+    private static final long BATCH_TIMEOUT_MS = 200;
+
+    @Test
+    void partialBatchIsDeliveredWithinTwiceTheBatchTimeoutUnderATrickle() throws Exception {
+        AtomicReference<Consumer> consumer = new AtomicReference<>();
+        ConnectionFactory connectionFactory = mockConnectionFactory(consumer);
+
+        BlockingQueue<Long> batchDeliveredAt = new LinkedBlockingQueue<>();
+        SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+        endpoint.setId("confirmations");
+        endpoint.setQueueNames(RabbitMQConfig.QUEUE_CMS_CONFIRMATION);
+        endpoint.setMessageListener((BatchMessageListener) (List<Message> batch) -> batchDeliveredAt.add(System.nanoTime()));
+
+        SimpleMessageListenerContainer container = new RabbitMQConfig()
+                .confirmationBatchContainerFactory(new SimpleRabbitListenerContainerFactoryConfigurer(new RabbitProperties()),
+                        connectionFactory, BATCH_SIZE, BATCH_TIMEOUT_MS)
+                .createListenerContainer(endpoint);
+        container.afterPropertiesSet();
+        container.start();
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (consumer.get() == null && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertNotNull(consumer.get(), "container never subscribed");
+
+            // One message every half timeout: a per-poll timeout alone would keep the batch
+            // open until the trickle stops, about 1.2s after the first message.
+            long firstSentAt = System.nanoTime();
+            for (int i = 1; i <= 10; i++) {
+                consumer.get().handleDelivery("ctag", new Envelope(i, false, "", RabbitMQConfig.QUEUE_CMS_CONFIRMATION),
+                        new AMQP.BasicProperties(), Long.toString(i).getBytes(StandardCharsets.UTF_8));
+                Thread.sleep(BATCH_TIMEOUT_MS / 2);
+            }
+
+            Long firstBatchAt = batchDeliveredAt.poll(5, TimeUnit.SECONDS);
+            assertNotNull(firstBatchAt, "no batch delivered");
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(firstBatchAt - firstSentAt);
+            assertTrue(latencyMs <= 2 * BATCH_TIMEOUT_MS + 100,
+                    "first partial batch took " + latencyMs + "ms, expected at most " + (2 * BATCH_TIMEOUT_MS) + "ms");
+        } finally {
+            container.stop();
+        }
+    }
+
+    private static ConnectionFactory mockConnectionFactory(AtomicReference<Consumer> consumer) throws Exception {
+        ConnectionFactory connectionFactory = mock(ConnectionFactory.class);
+        Connection connection = mock(Connection.class);
+        Channel channel = mock(Channel.class);
+        given(connectionFactory.createConnection()).willReturn(connection);
+        given(connection.createChannel(false)).willReturn(channel);
+        given(connection.isOpen()).willReturn(true);
+        given(channel.isOpen()).willReturn(true);
+        willAnswer(invocation -> {
+            Consumer callback = invocation.getArgument(6);
+            callback.handleConsumeOk("ctag");
+            consumer.set(callback);
+            return "ctag";
+        }).given(channel).basicConsume(anyString(), anyBoolean(), anyString(), anyBoolean(), anyBoolean(), anyMap(), any(Consumer.class));
+        return connectionFactory;
+    }
+}
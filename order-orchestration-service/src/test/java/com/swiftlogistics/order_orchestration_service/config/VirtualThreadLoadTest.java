@@ -0,0 +1,247 @@
+package com.swiftlogistics.order_orchestration_service.config;
+
+import com.swiftlogistics.order_orchestration_service.OrderOrchestrationServiceApplication;
+import com.swiftlogistics.order_orchestration_service.dto.OrderRequest;
+import com.swiftlogistics.order_orchestration_service.dto.OrderResponse;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import com.swiftlogistics.order_orchestration_service.repository.OrderRepository;
+import com.swiftlogistics.order_orchestration_service.service.OrderProcessingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Places orders through OrderProcessingService.placeOrder in both threading modes, each in
+ * its own application context:
+ *
+ * - platform: spring.threads.virtual.enabled=false, as deployed today. Requests run on a
+ *   200-thread pool (Tomcat's default) and only the Hikari pool bounds JDBC concurrency.
+ * - virtual: spring.threads.virtual.enabled=true. A virtual thread per request, with the
+ *   ConcurrencyLimitedDataSource in front of the same pool. The limiter gets fewer permits
+ *   than the pool has connections, so the cap checked there is the limiter's.
+ *
+ * Each request's latency is measured from submission, so time queued for a pool thread or
+ * a permit counts, and the throughput and p99 of the two modes are compared.
+ *
+ * Runs on an in-memory H2 database, and placing an order does no other I/O, so this checks
+ * that the cap holds and that virtual callers keep the throughput and tail latency of the
+ * pooled ones; it does not show the gain for requests that also wait on the network.
+ * RabbitMQ is mocked. Each mode is warmed up first. The default of 200 measured requests
+ * per mode keeps it cheap in mvn test; raise it with -Dload.requests for a real comparison.
+ */
+class VirtualThreadLoadTest {
+
+    private static final int POOL_SIZE = 10;
+    private static final int JDBC_PERMITS = 4;
+    private static final int REQUESTS = Integer.getInteger("load.requests", 200);
+    private static final int WARMUP_REQUESTS = 100;
+    private static final int PLATFORM_THREADS = 200;
+
+    @Test
+    void virtualThreadsKeepThroughputAndTailLatencyWithinTheJdbcCap() throws Exception {
+        // Started up front, as Tomcat's would be after warm-up, so creating them does not slow
+        // down submitting the requests.
+        ThreadPoolExecutor platformThreads = (ThreadPoolExecutor) Executors.newFixedThreadPool(PLATFORM_THREADS);
+        platformThreads.prestartAllCoreThreads();
+        Result platform = run("platform", false, platformThreads);
+        Result virtual = run("virtual", true, Executors.newVirtualThreadPerTaskExecutor());
+
+        System.out.println(platform);
+        System.out.println(virtual);
+
+        for (Result result : List.of(platform, virtual)) {
+            assertEquals(REQUESTS, result.placed(), result.mode() + " orders placed");
+        }
+        assertFalse(platform.limited(), "platform mode must run without the limiter");
+        assertTrue(platform.maxConnectionsInUse() <= POOL_SIZE, platform.toString());
+        assertTrue(virtual.limited(), "virtual mode must run with the limiter");
+        assertTrue(virtual.maxConnectionsInUse() <= JDBC_PERMITS, virtual.toString());
+        // The fair semaphore queues virtual threads instead of a pool queueing tasks, and on
+        // fewer connections; that must not cost more than half the throughput or double the p99.
+        assertTrue(virtual.throughput() >= platform.throughput() / 2,
+                "virtual " + virtual.throughput() + " req/s against platform " + platform.throughput() + " req/s");
+        assertTrue(virtual.p99Ms() <= 2 * platform.p99Ms(),
+                "virtual p99 " + virtual.p99Ms() + "ms against platform p99 " + platform.p99Ms() + "ms");
+    }
+
+    @Test
+    void closingAConnectionReturnsItsPermitOnce() throws Exception {
+        ConcurrencyLimitedDataSource limited = new ConcurrencyLimitedDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:permits", "sa", ""), 2, 100);
+
+        Connection connection = limited.getConnection();
+        assertEquals(1, limited.availablePermits());
+        connection.close();
+        connection.close();
+        assertEquals(2, limited.availablePermits());
+    }
+
+    private Result run(String mode, boolean virtualThreads, ExecutorService executor) throws Exception {
+        try (executor; ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                OrderOrchestrationServiceApplication.class, CountingConfig.class)
+                .initializers(ctx -> ctx.getBeanFactory().registerSingleton("rabbitTemplate", mock(RabbitTemplate.class)))
+                .run(
+                        "--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + mode + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--orders.jdbc.max-concurrency=" + JDBC_PERMITS,
+                        "--orders.jdbc.acquire-timeout-ms=60000",
+                        "--eureka.client.enabled=false")) {
+            OrderProcessingService orderProcessingService = context.getBean(OrderProcessingService.class);
+            boolean limited = context.getBean(DataSource.class) instanceof ConcurrencyLimitedDataSource;
+
+            // Unmeasured, so that neither mode pays for class loading and JIT compilation.
+            place(orderProcessingService, mode, executor, new long[WARMUP_REQUESTS]);
+
+            ConnectionCounter.reset();
+            long[] latencies = new long[REQUESTS];
+            long start = System.nanoTime();
+            int placed = place(orderProcessingService, mode, executor, latencies);
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            assertEquals(WARMUP_REQUESTS + REQUESTS, context.getBean(OrderRepository.class).count(), mode + " orders stored");
+            return new Result(mode, limited, placed, REQUESTS / elapsedSeconds, p99Ms(latencies),
+                    ConnectionCounter.maxInUse.get());
+        }
+    }
+
+    // Places one order per latency slot, all submitted at once, and records each one's latency
+    // from submission. Returns how many were accepted.
+    private static int place(OrderProcessingService orderProcessingService, String mode, ExecutorService executor,
+                             long[] latencies) {
+        AtomicInteger placed = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(latencies.length);
+        for (int i = 0; i < latencies.length; i++) {
+            int index = i;
+            OrderRequest request = new OrderRequest("Client " + i, "Package " + i, "Address " + i);
+            long submitted = System.nanoTime();
+            futures.add(CompletableFuture.runAsync(() -> {
+                OrderResponse response = orderProcessingService.placeOrder(request, "load-" + mode, null);
+                latencies[index] = System.nanoTime() - submitted;
+                if (response.getOrderId() != null && response.getStatus() == OrderStatus.SUBMITTED) {
+                    placed.incrementAndGet();
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        return placed.get();
+    }
+
+    private static double p99Ms(long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.ceil(sorted.length * 0.99) - 1] / 1e6;
+    }
+
+    private record Result(String mode, boolean limited, int placed, double throughput, double p99Ms,
+                          int maxConnectionsInUse) {
+        @Override
+        public String toString() {
+            return String.format("%-8s placed=%d throughput=%.0f req/s p99=%.1fms max JDBC connections=%d",
+                    mode, placed, throughput, p99Ms, maxConnectionsInUse);
+        }
+    }
+
+    @TestConfiguration
+    static class CountingConfig {
+
+        // Runs before the limiter, so it wraps the pool and the limiter, if any, wraps it: it
+        // sees only the connections the limiter let through. The return type declares the order.
+        @Bean
+        static CountingPostProcessor connectionCounter() {
+            return new CountingPostProcessor();
+        }
+    }
+
+    private static final class CountingPostProcessor implements BeanPostProcessor, PriorityOrdered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                return new ConnectionCounter(dataSource);
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+
+    // Tracks how many connections are checked out of the pool at once.
+    private static final class ConnectionCounter extends DelegatingDataSource {
+
+        private static final AtomicInteger inUse = new AtomicInteger();
+        private static final AtomicInteger maxInUse = new AtomicInteger();
+
+        ConnectionCounter(DataSource target) {
+            super(target);
+        }
+
+        static void reset() {
+            maxInUse.set(inUse.get());
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return counted(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return counted(super.getConnection(username, password));
+        }
+
+        private static Connection counted(Connection connection) {
+            maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+            AtomicBoolean closed = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && method.getParameterCount() == 0
+                                && closed.compareAndSet(false, true)) {
+                            inUse.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
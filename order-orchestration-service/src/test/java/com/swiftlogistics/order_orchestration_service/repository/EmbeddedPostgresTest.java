@@ -0,0 +1,46 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Base for repository tests of the native PostgreSQL queries (CTEs, SKIP LOCKED, hashint8),
+ * which H2 cannot run. Starts one embedded PostgreSQL for the whole test run, as the
+ * load-test module does, and builds the schema from the entities. Only the JPA slice is
+ * loaded, so no scheduled job or listener touches the tables during a test. The schema is
+ * not dropped on close: that would race the database's own shutdown at the end of the run.
+ *
+ * PostgreSQL refuses to start as root, so these tests are skipped when run as root.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.hibernate.ddl-auto=create",
+        "eureka.client.enabled=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+abstract class EmbeddedPostgresTest {
+
+    private static EmbeddedPostgres postgres;
+
+    @BeforeAll
+    static synchronized void startPostgres() throws IOException {
+        assumeFalse("root".equals(System.getProperty("user.name")), "PostgreSQL does not run as root");
+        if (postgres == null) {
+            postgres = EmbeddedPostgres.builder().start();
+        }
+    }
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+    }
+}
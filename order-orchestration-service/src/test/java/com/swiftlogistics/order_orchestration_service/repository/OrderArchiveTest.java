@@ -0,0 +1,187 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.swiftlogistics.order_orchestration_service.dto.OrderDto;
+import com.swiftlogistics.order_orchestration_service.dto.OrderPage;
+import com.swiftlogistics.order_orchestration_service.model.ArchivedOrder;
+import com.swiftlogistics.order_orchestration_service.model.Order;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import com.swiftlogistics.order_orchestration_service.service.IdempotencyService;
+import com.swiftlogistics.order_orchestration_service.service.OrderArchiver;
+import com.swiftlogistics.order_orchestration_service.service.OrderCache;
+import com.swiftlogistics.order_orchestration_service.service.OrderProcessingService;
+import com.swiftlogistics.order_orchestration_service.service.PublisherConfirmTracker;
+import com.swiftlogistics.order_orchestration_service.service.SagaMetrics;
+import com.swiftlogistics.order_orchestration_service.util.OrderIdGenerator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * ArchivedOrderRepository.archiveTerminalOrders and the paging of
+ * OrderProcessingService.getOrdersForUser over the hot table and the archive, against
+ * PostgreSQL. Part of a user's orders is archived, before paging and halfway through it,
+ * and walking every page by cursor must return each order exactly once, newest first.
+ * Not transactional, so every statement commits as it does in production.
+ */
+@Import({OrderProcessingService.class, OrderArchiver.class, OrderCache.class, OrderArchiveTest.Meters.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderArchiveTest extends EmbeddedPostgresTest {
+
+    private static final String USER = "user-1";
+    private static final int ORDERS = 30;
+    private static final int PAGE_SIZE = 4;
+
+    @Autowired
+    private OrderProcessingService orderProcessingService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ArchivedOrderRepository archivedOrderRepository;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private PublisherConfirmTracker publisher;
+
+    @MockitoBean
+    private SagaMetrics sagaMetrics;
+
+    @MockitoBean
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private OrderIdGenerator orderIdGenerator;
+
+    private final Instant old = Instant.now().minus(Duration.ofDays(90));
+    private final Instant cutoff = Instant.now().minus(Duration.ofDays(30));
+
+    @TestConfiguration
+    static class Meters {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        orderRepository.deleteAllInBatch();
+        archivedOrderRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void archivingMovesOnlyOldTerminalOrdersWithAllTheirColumns() {
+        orderRepository.save(order(1L, USER, OrderStatus.COMPLETED, old));
+        orderRepository.save(order(2L, USER, OrderStatus.FAILED, old));
+        orderRepository.save(order(3L, USER, OrderStatus.SUBMITTED, old));
+        orderRepository.save(order(4L, USER, OrderStatus.COMPLETED, Instant.now()));
+
+        assertEquals(1, archivedOrderRepository.archiveTerminalOrders(cutoff, 1));
+        assertEquals(1, archivedOrderRepository.archiveTerminalOrders(cutoff, 1));
+        assertEquals(0, archivedOrderRepository.archiveTerminalOrders(cutoff, 1));
+
+        assertEquals(List.of(3L, 4L), orderRepository.findAll().stream().map(Order::getId).sorted().toList());
+        ArchivedOrder archived = archivedOrderRepository.findById(1L).orElseThrow();
+        assertEquals("SWL-1", archived.getTrackingNumber());
+        assertEquals(USER, archived.getUserId());
+        assertEquals("Client 1", archived.getClientName());
+        assertEquals("Package 1", archived.getPackageDetails());
+        assertEquals("Address 1", archived.getDeliveryAddress());
+        assertEquals(OrderStatus.COMPLETED, archived.getStatus());
+        assertEquals("CONFIRMED", archived.getCmsStatus());
+        assertEquals(7, archived.getSagaProgress());
+        assertEquals(old.toEpochMilli(), archived.getSubmittedAt().toEpochMilli());
+        assertNotNull(archived.getArchivedAt());
+        assertEquals(OrderStatus.FAILED, archivedOrderRepository.findById(2L).orElseThrow().getStatus());
+    }
+
+    @Test
+    void pagesRunAcrossTheArchiveWithoutGapsOrDuplicates() {
+        saveOrders();
+        orderRepository.save(order(1_000L, "user-2", OrderStatus.COMPLETED, old));
+
+        assertEquals(ORDERS / 2 + 1, archivedOrderRepository.archiveTerminalOrders(cutoff, 1_000));
+
+        assertEquals(newestFirst(), walk(null, null));
+        // Only the archived orders are COMPLETED.
+        List<Long> completed = walk(null, Set.of(OrderStatus.COMPLETED));
+        assertEquals(newestFirst().stream().filter(id -> id % 2 == 1).toList(), completed);
+    }
+
+    @Test
+    void archivingBetweenPagesDoesNotShiftTheCursor() {
+        saveOrders();
+
+        OrderPage first = orderProcessingService.getOrdersForUser(USER, null, PAGE_SIZE, null);
+        assertEquals(ORDERS / 2, archivedOrderRepository.archiveTerminalOrders(cutoff, 1_000));
+
+        List<Long> ids = new ArrayList<>(first.orders().stream().map(OrderDto::getId).toList());
+        ids.addAll(walk(first.nextCursor(), null));
+        assertEquals(newestFirst(), ids);
+    }
+
+    // Odd ids are old and COMPLETED, so they are archived; even ids stay in the hot table.
+    private void saveOrders() {
+        for (long id = 1; id <= ORDERS; id++) {
+            orderRepository.save(id % 2 == 1
+                    ? order(id, USER, OrderStatus.COMPLETED, old)
+                    : order(id, USER, OrderStatus.SUBMITTED, Instant.now()));
+        }
+    }
+
+    // Follows nextCursor from the given cursor to the last page and returns the ids in order.
+    private List<Long> walk(Long cursor, Set<OrderStatus> statuses) {
+        List<Long> ids = new ArrayList<>();
+        do {
+            OrderPage page = orderProcessingService.getOrdersForUser(USER, cursor, PAGE_SIZE, statuses);
+            page.orders().forEach(order -> ids.add(order.getId()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static List<Long> newestFirst() {
+        return LongStream.rangeClosed(1, ORDERS).map(i -> ORDERS + 1 - i).boxed().toList();
+    }
+
+    private static Order order(long id, String userId, OrderStatus status, Instant submittedAt) {
+        boolean completed = status == OrderStatus.COMPLETED;
+        Order order = new Order();
+        order.setId(id);
+        order.setTrackingNumber("SWL-" + id);
+        order.setUserId(userId);
+        order.setClientName("Client " + id);
+        order.setPackageDetails("Package " + id);
+        order.setDeliveryAddress("Address " + id);
+        order.setStatus(status);
+        order.setCmsStatus(completed ? "CONFIRMED" : "PENDING");
+        order.setWmsStatus(completed ? "CONFIRMED" : "PENDING");
+        order.setRosStatus(completed ? "CONFIRMED" : "PENDING");
+        order.setSagaProgress((short) (completed ? 7 : 0));
+        order.setSubmittedAt(submittedAt);
+        return order;
+    }
+}
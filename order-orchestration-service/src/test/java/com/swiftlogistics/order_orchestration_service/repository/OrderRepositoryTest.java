@@ -0,0 +1,214 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.swiftlogistics.order_orchestration_service.model.Order;
+import com.swiftlogistics.order_orchestration_service.model.OrderEvent;
+import com.swiftlogistics.order_orchestration_service.model.OrderEventType;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import com.swiftlogistics.order_orchestration_service.model.SagaStep;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The saga statements of OrderRepository against PostgreSQL: applyConfirmations, markFailed,
+ * findStuckSagas and the submitted_at backfill.
+ */
+class OrderRepositoryTest extends EmbeddedPostgresTest {
+
+    private static final long TIMEOUT_MS = 300_000;
+    private static final int MAX_RETRIES = 2;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Test
+    void confirmationSetsItsBitAndAppendsItsEvent() {
+        save(order(1L, OrderStatus.SUBMITTED, 0, now, 0));
+
+        List<Object[]> rows = orderRepository.applyConfirmations(List.of(1L), SagaStep.CMS.bit(), "CMS_CONFIRMED");
+
+        assertEquals(1, rows.size());
+        assertEquals(1L, ((Number) rows.get(0)[0]).longValue());
+        assertEquals("user-1", rows.get(0)[1]);
+        assertEquals(SagaStep.CMS.bit(), ((Number) rows.get(0)[2]).intValue());
+        assertEquals(now.toEpochMilli(), ((Number) rows.get(0)[3]).longValue());
+        Order order = reload(1L);
+        assertEquals(SagaStep.CMS.bit(), order.getSagaProgress());
+        assertEquals("CONFIRMED", order.getCmsStatus());
+        assertEquals("PENDING", order.getWmsStatus());
+        assertEquals("PENDING", order.getRosStatus());
+        assertEquals(OrderStatus.SUBMITTED, order.getStatus());
+        assertEquals(List.of(OrderEventType.CMS_CONFIRMED), events(1L));
+    }
+
+    @Test
+    void lastConfirmationCompletesTheOrder() {
+        save(order(1L, OrderStatus.SUBMITTED, SagaStep.CMS.bit() | SagaStep.WMS.bit(), now, 0));
+
+        List<Object[]> rows = orderRepository.applyConfirmations(List.of(1L), SagaStep.ROS.bit(), "ROS_CONFIRMED");
+
+        assertEquals(SagaStep.ALL_CONFIRMED, ((Number) rows.get(0)[2]).intValue());
+        Order order = reload(1L);
+        assertEquals(OrderStatus.COMPLETED, order.getStatus());
+        assertEquals("CONFIRMED", order.getRosStatus());
+        assertEquals(List.of(OrderEventType.ROS_CONFIRMED, OrderEventType.COMPLETED), events(1L));
+    }
+
+    @Test
+    void duplicateAndLateConfirmationsChangeNothing() {
+        save(order(1L, OrderStatus.SUBMITTED, SagaStep.CMS.bit(), now, 0));
+        save(order(2L, OrderStatus.FAILED, 0, now, 0));
+
+        List<Object[]> rows = orderRepository.applyConfirmations(List.of(1L, 2L, 3L), SagaStep.CMS.bit(), "CMS_CONFIRMED");
+
+        assertTrue(rows.isEmpty());
+        assertEquals(SagaStep.CMS.bit(), reload(1L).getSagaProgress());
+        assertEquals(OrderStatus.FAILED, reload(2L).getStatus());
+        assertEquals(0, reload(2L).getSagaProgress());
+        assertEquals(List.of(), events(1L));
+        assertEquals(List.of(), events(2L));
+    }
+
+    @Test
+    void batchConfirmsEachSubmittedOrderOnce() {
+        save(order(1L, OrderStatus.SUBMITTED, 0, now, 0));
+        save(order(2L, OrderStatus.SUBMITTED, SagaStep.WMS.bit(), now, 0));
+        save(order(3L, OrderStatus.SUBMITTED, SagaStep.WMS.bit() | SagaStep.ROS.bit(), now, 0));
+
+        List<Object[]> rows = orderRepository.applyConfirmations(List.of(1L, 2L, 3L), SagaStep.CMS.bit(), "CMS_CONFIRMED");
+
+        assertEquals(3, rows.size());
+        assertEquals(OrderStatus.SUBMITTED, reload(1L).getStatus());
+        assertEquals(OrderStatus.SUBMITTED, reload(2L).getStatus());
+        assertEquals(OrderStatus.COMPLETED, reload(3L).getStatus());
+        assertEquals(List.of(OrderEventType.CMS_CONFIRMED, OrderEventType.COMPLETED), events(3L));
+    }
+
+    @Test
+    void markFailedFailsOnlyASubmittedOrder() {
+        save(order(1L, OrderStatus.SUBMITTED, SagaStep.CMS.bit(), now, 0));
+        save(order(2L, OrderStatus.COMPLETED, SagaStep.ALL_CONFIRMED, now, 0));
+
+        assertEquals(Optional.of("user-1"), orderRepository.markFailed(1L));
+        assertEquals(Optional.empty(), orderRepository.markFailed(1L));
+        assertEquals(Optional.empty(), orderRepository.markFailed(2L));
+        assertEquals(Optional.empty(), orderRepository.markFailed(3L));
+
+        Order failed = reload(1L);
+        assertEquals(OrderStatus.FAILED, failed.getStatus());
+        assertEquals("FAILED", failed.getCmsStatus());
+        assertEquals("FAILED", failed.getWmsStatus());
+        assertEquals("FAILED", failed.getRosStatus());
+        assertEquals(List.of(OrderEventType.FAILED), events(1L));
+        assertEquals(OrderStatus.COMPLETED, reload(2L).getStatus());
+        assertEquals(List.of(), events(2L));
+    }
+
+    @Test
+    void findStuckSagasHonoursTheDeadlineOfEachRetry() {
+        // Past the first deadline, not yet retried: due.
+        save(order(1L, OrderStatus.SUBMITTED, 0, now.minusMillis(TIMEOUT_MS + 1_000), 0));
+        // Within the first timeout: not due.
+        save(order(2L, OrderStatus.SUBMITTED, 0, now.minusMillis(TIMEOUT_MS - 1_000), 0));
+        // Retried once, so due after two timeouts: not yet.
+        save(order(3L, OrderStatus.SUBMITTED, 0, now.minusMillis(2 * TIMEOUT_MS - 1_000), 1));
+        // Retried once and past the second deadline: due.
+        save(order(4L, OrderStatus.SUBMITTED, 0, now.minusMillis(2 * TIMEOUT_MS + 1_000), 1));
+        // Compensation already claimed: never picked up again.
+        save(order(5L, OrderStatus.SUBMITTED, 0, now.minusMillis(10 * TIMEOUT_MS), MAX_RETRIES + 1));
+        // Finished: not a saga any more.
+        save(order(6L, OrderStatus.COMPLETED, SagaStep.ALL_CONFIRMED, now.minusMillis(10 * TIMEOUT_MS), 0));
+        entityManager.flush();
+
+        // Oldest first, and each due order in exactly one partition.
+        assertEquals(List.of(4L, 1L), stuck(0, 1));
+        List<Long> partitioned = new ArrayList<>();
+        for (int partition = 0; partition < 4; partition++) {
+            partitioned.addAll(stuck(partition, 4));
+        }
+        assertEquals(Set.of(1L, 4L), Set.copyOf(partitioned));
+        assertEquals(2, partitioned.size());
+    }
+
+    @Test
+    void ordersFromBeforeSubmittedAtAreBackfilledAndSwept() {
+        // Rows as they were before the column existed; the entity no longer allows a null.
+        execute("ALTER TABLE orders ALTER COLUMN submitted_at DROP NOT NULL");
+        execute("INSERT INTO orders (id, user_id, status, saga_progress, sweep_attempts) VALUES (1, 'user-1', 'SUBMITTED', 0, 0)");
+        execute("INSERT INTO orders (id, user_id, status, saga_progress, sweep_attempts) VALUES (2, 'user-2', 'COMPLETED', 7, 0)");
+
+        assertEquals(2, orderRepository.backfillSubmittedAt(now, Instant.EPOCH));
+        orderRepository.requireSubmittedAt();
+        entityManager.clear();
+
+        assertEquals(now, reload(1L).getSubmittedAt());
+        assertEquals(Instant.EPOCH, reload(2L).getSubmittedAt());
+        assertEquals(0, orderRepository.backfillSubmittedAt(now, Instant.EPOCH));
+        // Swept once a full timeout has passed since the backfill.
+        Instant later = now.plusMillis(TIMEOUT_MS + 1_000);
+        assertEquals(List.of(1L), orderRepository.findStuckSagas(later, later.minusMillis(TIMEOUT_MS), TIMEOUT_MS,
+                MAX_RETRIES, 0, 1, 10));
+    }
+
+    private List<Long> stuck(int partition, int partitions) {
+        return orderRepository.findStuckSagas(now, now.minusMillis(TIMEOUT_MS), TIMEOUT_MS, MAX_RETRIES,
+                partition, partitions, 10);
+    }
+
+    private static Order order(long id, OrderStatus status, int progress, Instant submittedAt, int sweepAttempts) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId("user-" + id);
+        order.setClientName("Client " + id);
+        order.setPackageDetails("Package " + id);
+        order.setDeliveryAddress("Address " + id);
+        order.setStatus(status);
+        order.setCmsStatus("PENDING");
+        order.setWmsStatus("PENDING");
+        order.setRosStatus("PENDING");
+        order.setSagaProgress((short) progress);
+        order.setSubmittedAt(submittedAt);
+        order.setSweepAttempts((short) sweepAttempts);
+        return order;
+    }
+
+    private void execute(String sql) {
+        entityManager.getEntityManager().createNativeQuery(sql).executeUpdate();
+    }
+
+    private void save(Order order) {
+        orderRepository.saveAndFlush(order);
+    }
+
+    // Reads the row as the native statements left it, not the copy in the persistence context.
+    private Order reload(long id) {
+        entityManager.clear();
+        return orderRepository.findById(id).orElseThrow();
+    }
+
+    private List<OrderEventType> events(long orderId) {
+        return orderEventRepository.findAll().stream()
+                .filter(event -> event.getOrderId() == orderId)
+                .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                .map(OrderEvent::getType)
+                .toList();
+    }
+}
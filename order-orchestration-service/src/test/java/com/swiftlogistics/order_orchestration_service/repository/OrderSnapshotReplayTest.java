@@ -0,0 +1,126 @@
+package com.swiftlogistics.order_orchestration_service.repository;
+
+import com.swiftlogistics.order_orchestration_service.model.Order;
+import com.swiftlogistics.order_orchestration_service.model.OrderEvent;
+import com.swiftlogistics.order_orchestration_service.model.OrderEventType;
+import com.swiftlogistics.order_orchestration_service.model.OrderStatus;
+import com.swiftlogistics.order_orchestration_service.service.OrderSnapshotReplayer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * OrderSnapshotReplayer and OrderRepository.rebuildSnapshots against PostgreSQL: every
+ * snapshot is corrupted, then rebuilt from order_events by several workers in small chunks.
+ * Not transactional, because the workers commit on their own threads.
+ */
+@Import(OrderSnapshotReplayer.class)
+@TestPropertySource(properties = {
+        "orders.replay.enabled=true",
+        "orders.replay.threads=3",
+        "orders.replay.chunk-size=4"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderSnapshotReplayTest extends EmbeddedPostgresTest {
+
+    private static final int ORDERS = 40;
+
+    @Autowired
+    private OrderSnapshotReplayer replayer;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderEventRepository orderEventRepository;
+
+    @AfterEach
+    void cleanUp() {
+        orderEventRepository.deleteAllInBatch();
+        orderRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void replayRebuildsEverySnapshotFromTheLog() throws Exception {
+        List<OrderEvent> events = new ArrayList<>();
+        for (int i = 1; i <= ORDERS; i++) {
+            // Ids spread out so that the workers' ranges hold several chunks each.
+            long id = i * 1_000L;
+            // Every snapshot starts out wrong.
+            orderRepository.save(order(id, OrderStatus.COMPLETED, 5, "BOGUS"));
+            switch (i % 4) {
+                case 0 -> events.addAll(events(id, OrderEventType.SUBMITTED, OrderEventType.CMS_CONFIRMED,
+                        OrderEventType.ROS_CONFIRMED, OrderEventType.WMS_CONFIRMED, OrderEventType.COMPLETED));
+                case 1 -> events.addAll(events(id, OrderEventType.SUBMITTED, OrderEventType.WMS_CONFIRMED));
+                case 2 -> events.addAll(events(id, OrderEventType.SUBMITTED, OrderEventType.CMS_CONFIRMED,
+                        OrderEventType.FAILED));
+                default -> {
+                    // Placed before the log existed: no events at all.
+                }
+            }
+        }
+        orderEventRepository.saveAll(events);
+
+        replayer.run(null);
+
+        for (int i = 1; i <= ORDERS; i++) {
+            long id = i * 1_000L;
+            Order order = orderRepository.findById(id).orElseThrow();
+            switch (i % 4) {
+                case 0 -> assertSnapshot(order, OrderStatus.COMPLETED, 7, "CONFIRMED", "CONFIRMED", "CONFIRMED");
+                case 1 -> assertSnapshot(order, OrderStatus.SUBMITTED, 2, "PENDING", "CONFIRMED", "PENDING");
+                case 2 -> assertSnapshot(order, OrderStatus.FAILED, 1, "FAILED", "FAILED", "FAILED");
+                default -> assertSnapshot(order, OrderStatus.COMPLETED, 5, "BOGUS", "BOGUS", "BOGUS");
+            }
+        }
+    }
+
+    @Test
+    void replayOfAnEmptyLogChangesNothing() throws Exception {
+        orderRepository.save(order(1L, OrderStatus.SUBMITTED, 3, "PENDING"));
+
+        replayer.run(null);
+
+        assertSnapshot(orderRepository.findById(1L).orElseThrow(), OrderStatus.SUBMITTED, 3, "PENDING", "PENDING", "PENDING");
+    }
+
+    private static void assertSnapshot(Order order, OrderStatus status, int progress, String cms, String wms, String ros) {
+        String id = "order " + order.getId();
+        assertEquals(status, order.getStatus(), id);
+        assertEquals(progress, order.getSagaProgress(), id);
+        assertEquals(cms, order.getCmsStatus(), id);
+        assertEquals(wms, order.getWmsStatus(), id);
+        assertEquals(ros, order.getRosStatus(), id);
+    }
+
+    private static Order order(long id, OrderStatus status, int progress, String systemStatus) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId("user-" + id);
+        order.setStatus(status);
+        order.setCmsStatus(systemStatus);
+        order.setWmsStatus(systemStatus);
+        order.setRosStatus(systemStatus);
+        order.setSagaProgress((short) progress);
+        order.setSubmittedAt(Instant.now());
+        return order;
+    }
+
+    private static List<OrderEvent> events(long orderId, OrderEventType... types) {
+        List<OrderEvent> events = new ArrayList<>(types.length);
+        for (OrderEventType type : types) {
+            events.add(new OrderEvent(orderId, type));
+        }
+        return events;
+    }
+}
@@ -0,0 +1,109 @@
+package com.swiftlogistics.order_orchestration_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderIdGeneratorTest {
+
+    @Test
+    void idsAreUniqueUnderHeavyConcurrency() throws Exception {
+        int threads = 16;
+        int idsPerThread = 250_000;
+        OrderIdGenerator generator = new OrderIdGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet(threads * idsPerThread);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < idsPerThread; i++) {
+                        ids.add(generator.nextId());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * idsPerThread, ids.size());
+    }
+
+    @Test
+    void firstIdAtBoundsIdsIssuedOnAnyNode() {
+        long millis = OrderIdGenerator.EPOCH_MILLIS + 86_400_000L;
+        long lowest = new OrderIdGenerator(0, () -> millis).nextId();
+        long highest = new OrderIdGenerator(OrderIdGenerator.MAX_NODE_ID, () -> millis - 1).nextId();
+
+        assertEquals(OrderIdGenerator.firstIdAt(millis), lowest);
+        assertTrue(highest < OrderIdGenerator.firstIdAt(millis));
+        assertEquals(0, OrderIdGenerator.firstIdAt(OrderIdGenerator.EPOCH_MILLIS - 1));
+    }
+
+    @Test
+    void idsIncreaseOnOneNodeEvenWhenTheClockStandsStillOrGoesBack() {
+        AtomicLong now = new AtomicLong(OrderIdGenerator.EPOCH_MILLIS + 1_000);
+        OrderIdGenerator generator = new OrderIdGenerator(1, now::get);
+
+        long previous = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                now.addAndGet(-500);
+            }
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+    }
+
+    @Test
+    void differentNodesNeverCollideWithinTheSameMillisecond() {
+        long fixed = OrderIdGenerator.EPOCH_MILLIS + 42;
+        OrderIdGenerator first = new OrderIdGenerator(1, () -> fixed);
+        OrderIdGenerator second = new OrderIdGenerator(2, () -> fixed);
+
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 10_000; i++) {
+            ids.add(first.nextId());
+            ids.add(second.nextId());
+        }
+        assertEquals(20_000, ids.size());
+    }
+
+    @Test
+    void rejectsNodeIdsThatDoNotFit() {
+        assertThrows(IllegalArgumentException.class, () -> new OrderIdGenerator(OrderIdGenerator.MAX_NODE_ID + 1));
+        assertThrows(IllegalArgumentException.class, () -> new OrderIdGenerator(-1));
+    }
+
+    @Test
+    void trackingNumberIsStableAndDistinguishesIds() {
+        long id = new OrderIdGenerator(3).nextId();
+        String trackingNumber = OrderIdGenerator.trackingNumber(id);
+
+        assertEquals(trackingNumber, OrderIdGenerator.trackingNumber(id));
+        assertNotEquals(trackingNumber, OrderIdGenerator.trackingNumber(id + 1));
+        assertTrue(trackingNumber.matches("SWL-[0-9A-HJKMNP-TV-Z]{13}-[0-9A-HJKMNP-TV-Z*~$=U]"), trackingNumber);
+    }
+}
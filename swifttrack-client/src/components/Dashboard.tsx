@@ -3,7 +3,7 @@ import { useOrders } from '../hooks/useOrders';
 import type { Order } from '../types/order';
 
 export function Dashboard() {
-  const { orders, loading } = useOrders();
+  const { orders, loading, hasMore } = useOrders();
 
   if (loading) {
     return (
@@ -13,7 +13,7 @@ export function Dashboard() {
     );
   }
 
-  // Calculate stats from orders
+  // Calculate stats from the first page of orders; hasMore means there are older ones
   const stats = {
     totalOrders: orders.length,
     pendingOrders: orders.filter(order => order.status === 'pending').length,
@@ -79,7 +79,7 @@ export function Dashboard() {
             </div>
             <div className="ml-4">
               <p className="text-sm font-medium text-gray-600">Total Orders</p>
-              <p className="text-2xl font-bold text-gray-900">{stats.totalOrders}</p>
+              <p className="text-2xl font-bold text-gray-900">{stats.totalOrders}{hasMore ? '+' : ''}</p>
             </div>
           </div>
         </div>
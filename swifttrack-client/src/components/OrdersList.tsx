@@ -4,7 +4,7 @@ import { useOrders } from '../hooks/useOrders';
 import type { BackendOrder } from '../service/orderService';
 
 export function OrdersList() {
-  const { orders, loading, error, refetch } = useOrders();
+  const { orders, loading, loadingMore, error, hasMore, loadMore, refetch } = useOrders();
   const [searchTerm, setSearchTerm] = useState('');
   const [statusFilter, setStatusFilter] = useState<string>('all');
 
@@ -241,7 +241,21 @@ export function OrdersList() {
       {/* Results Summary */}
       {filteredOrders.length > 0 && (
         <div className="mt-6 text-center text-sm text-gray-600">
-          Showing {filteredOrders.length} of {orders.length} orders
+          Showing {filteredOrders.length} of {orders.length}{hasMore ? ' loaded' : ''} orders
+        </div>
+      )}
+
+      {/* Older orders are fetched a page at a time, on request */}
+      {hasMore && (
+        <div className="mt-4 text-center">
+          <button
+            onClick={loadMore}
+            disabled={loadingMore}
+            className="inline-flex items-center px-4 py-2 border border-gray-300 rounded-lg text-sm font-medium text-gray-700 bg-white hover:bg-gray-50 disabled:opacity-50"
+          >
+            <RefreshCw className={`h-4 w-4 mr-2 ${loadingMore ? 'animate-spin' : ''}`} />
+            {loadingMore ? 'Loading...' : 'Load more orders'}
+          </button>
         </div>
       )}
     </div>
@@ -1,17 +1,21 @@
 import { useState, useEffect } from "react";
 import { orderService,type BackendOrder } from "../service/orderService";
 
+// Loads the first page of orders; loadMore appends the next page while hasMore is true.
 export function useOrders() {
   const [orders, setOrders] = useState<BackendOrder[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
 
   const fetchOrders = async () => {
     try {
       setLoading(true);
       setError(null);
-      const ordersData = await orderService.getAllOrders();
-      setOrders(ordersData);
+      const page = await orderService.getOrdersPage();
+      setOrders(page.orders);
+      setNextCursor(page.nextCursor);
     } catch (error) {
       console.error("Failed to fetch orders:", error);
       setError(
@@ -22,6 +26,26 @@ export function useOrders() {
     }
   };
 
+  const loadMore = async () => {
+    if (!nextCursor || loadingMore) {
+      return;
+    }
+    try {
+      setLoadingMore(true);
+      setError(null);
+      const page = await orderService.getOrdersPage(nextCursor);
+      setOrders((loaded) => [...loaded, ...page.orders]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error("Failed to fetch more orders:", error);
+      setError(
+        error instanceof Error ? error.message : "Failed to fetch orders"
+      );
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   useEffect(() => {
     fetchOrders();
   }, []);
@@ -29,7 +53,10 @@ export function useOrders() {
   return {
     orders,
     loading,
+    loadingMore,
     error,
+    hasMore: nextCursor !== null,
+    loadMore,
     refetch: fetchOrders,
   };
 }
@@ -11,7 +11,9 @@ export type OrderResponse = {
 }
 
 export type BackendOrder = {
-    id: number;
+    // 64-bit order ids are sent as strings so they survive JSON parsing intact
+    id: string;
+    trackingNumber?: string;
     clientName: string;
     packageDetails: string;
     deliveryAddress: string;
@@ -22,6 +24,11 @@ export type BackendOrder = {
     userId: string;
 }
 
+export type OrdersPage = {
+    orders: BackendOrder[];
+    nextCursor: string | null;
+}
+
 export class ApiError extends Error {
     status?: number;
     
@@ -34,6 +41,8 @@ export class ApiError extends Error {
 
 class OrderService {
     private readonly baseUrl = 'http://localhost:8080/api/orders';
+    // Orders fetched per page; later pages are only fetched when the user asks for them
+    private readonly pageSize = 50;
 
     private getAuthHeaders(): HeadersInit {
         try {
@@ -106,15 +115,23 @@ class OrderService {
         }
     }
 
-    async getAllOrders(): Promise<BackendOrder[]> {
+    // GET /orders returns one page at a time, newest first. nextCursor is the X-Next-Cursor
+    // header, null on the last page; pass it back to get the next page. The cursor is an
+    // order id and stays a string, like the ids themselves.
+    async getOrdersPage(cursor?: string | null): Promise<OrdersPage> {
         try {
-            console.log('Fetching orders from:', this.baseUrl);
-            const response = await fetch(this.baseUrl, {
+            const params = new URLSearchParams({ limit: String(this.pageSize) });
+            if (cursor) {
+                params.set('cursor', cursor);
+            }
+            console.log('Fetching orders from:', `${this.baseUrl}?${params}`);
+            const response = await fetch(`${this.baseUrl}?${params}`, {
                 method: 'GET',
                 headers: this.getAuthHeaders()
             });
 
-            return await this.handleResponse<BackendOrder[]>(response);
+            const orders = await this.handleResponse<BackendOrder[]>(response);
+            return { orders, nextCursor: response.headers.get('X-Next-Cursor') };
         } catch (error) {
             console.error('Failed to fetch orders:', error);
             throw error;